@@ -1,5 +1,7 @@
 package com.aihuishou.pipeline.core.annotation;
 
+import com.aihuishou.pipeline.core.strategy.IdleStrategyType;
+
 import java.lang.annotation.*;
 
 @Target(ElementType.TYPE)
@@ -17,4 +19,16 @@ public @interface TaskConfig {
 
     int maxConsumeCount() default 100;
 
+    int minBatchSize() default 1;
+
+    long maxLingerMillis() default 0;
+
+    IdleStrategyType idleStrategy() default IdleStrategyType.BLOCKING;
+
+    int parallelism() default 1;
+
+    int maxParallelism() default 0;
+
+    boolean stateless() default false;
+
 }
@@ -1,20 +1,17 @@
 package com.aihuishou.pipeline.core.annotation;
 
-import com.github.rholder.retry.Retryer;
-import com.github.rholder.retry.RetryerBuilder;
-import com.github.rholder.retry.StopStrategies;
-import com.github.rholder.retry.WaitStrategies;
 import lombok.Getter;
 import lombok.Setter;
 import com.aihuishou.pipeline.core.config.GlobalConfig;
 import com.aihuishou.pipeline.core.processor.PipeProcessor;
 import com.aihuishou.pipeline.core.reader.PipeReader;
+import com.aihuishou.pipeline.core.strategy.IdleStrategyType;
 import com.aihuishou.pipeline.core.writer.PipeWriter;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Getter
@@ -29,8 +26,38 @@ public class TaskConfigAttributes {
 
     private int maxProduceRetryTimes;
 
+    /**
+     * 单次最多消费的数量，即批次大小上限
+     */
     private int maxConsumeCount;
 
+    /**
+     * 批次大小下限，不足时在 maxLinger 内继续攒批（对 processor 及 writer 生效）
+     */
+    private int minBatchSize = 1;
+
+    /**
+     * 攒批的最长等待时间，从取到批次的首个元素开始计算，为 0 时不攒批
+     */
+    private Duration maxLinger = Duration.ZERO;
+
+    private IdleStrategyType idleStrategy = IdleStrategyType.BLOCKING;
+
+    /**
+     * 并行度，即同时消费同一缓冲区的工作线程数（仅对 processor 生效）
+     */
+    private int parallelism = 1;
+
+    /**
+     * 最大并行度，大于 parallelism 时工作线程数按缓冲区占用在 [parallelism, maxParallelism] 之间自动伸缩（仅对 processor 生效）
+     */
+    private int maxParallelism;
+
+    /**
+     * 是否无状态，相邻的无状态 processor 会被自动融合（仅对 processor 生效）
+     */
+    private boolean stateless;
+
     public static TaskConfigAttributes fromClass(Class<?> clazz) {
         TaskConfig annotation = clazz.getAnnotation(TaskConfig.class);
         TaskConfigAttributes attributes = new TaskConfigAttributes();
@@ -40,20 +67,33 @@ public class TaskConfigAttributes {
             attributes.setProduceRetryPeriodSeconds(annotation.produceRetryPeriodSeconds());
             attributes.setMaxProduceRetryTimes(annotation.maxProduceRetryTimes());
             attributes.setMaxConsumeCount(annotation.maxConsumeCount());
+            attributes.setMinBatchSize(annotation.minBatchSize());
+            attributes.setMaxLinger(Duration.ofMillis(annotation.maxLingerMillis()));
+            attributes.setIdleStrategy(annotation.idleStrategy());
+            attributes.setParallelism(annotation.parallelism());
+            attributes.setMaxParallelism(annotation.maxParallelism());
+            attributes.setStateless(annotation.stateless());
         } else {
             attributes.setInterruptFor(Collections.singleton(Throwable.class));
             attributes.setIgnoreFor(Collections.emptySet());
             if (PipeReader.class.isAssignableFrom(clazz)) {
                 attributes.setProduceRetryPeriodSeconds(GlobalConfig.READER.getProduceWaitSeconds());
                 attributes.setMaxProduceRetryTimes(GlobalConfig.READER.getProduceRetryTimes());
+                attributes.setIdleStrategy(GlobalConfig.READER.getIdleStrategy());
             }
             if (PipeProcessor.class.isAssignableFrom(clazz)) {
                 attributes.setProduceRetryPeriodSeconds(GlobalConfig.PROCESSOR.getProduceWaitSeconds());
                 attributes.setMaxProduceRetryTimes(GlobalConfig.PROCESSOR.getProduceRetryTimes());
                 attributes.setMaxConsumeCount(GlobalConfig.PROCESSOR.getMaxConsumeCount());
+                attributes.setMinBatchSize(GlobalConfig.PROCESSOR.getMinBatchSize());
+                attributes.setMaxLinger(GlobalConfig.PROCESSOR.getMaxLinger());
+                attributes.setIdleStrategy(GlobalConfig.PROCESSOR.getIdleStrategy());
             }
             if (PipeWriter.class.isAssignableFrom(clazz)) {
                 attributes.setMaxConsumeCount(GlobalConfig.WRITER.getMaxConsumeCount());
+                attributes.setMinBatchSize(GlobalConfig.WRITER.getMinBatchSize());
+                attributes.setMaxLinger(GlobalConfig.WRITER.getMaxLinger());
+                attributes.setIdleStrategy(GlobalConfig.WRITER.getIdleStrategy());
             }
         }
         return attributes;
@@ -69,12 +109,18 @@ public class TaskConfigAttributes {
         return true;
     }
 
-    public Retryer<Boolean> buidlRetryer() {
-        return RetryerBuilder.<Boolean>newBuilder()
-                .retryIfResult(Boolean.FALSE::equals)
-                .withStopStrategy(StopStrategies.stopAfterAttempt(this.getMaxProduceRetryTimes()))
-                .withWaitStrategy(WaitStrategies.fixedWait(this.getProduceRetryPeriodSeconds(), TimeUnit.SECONDS))
-                .build();
+    /**
+     * 是否开启工作线程数自动伸缩
+     */
+    public boolean isAutoScaling() {
+        return maxParallelism > parallelism;
+    }
+
+    /**
+     * 写入缓冲区的最长等待时间，即重试间隔与重试次数之积，期间按空闲策略等待而非固定休眠
+     */
+    public Duration getProduceTimeout() {
+        return Duration.ofSeconds((long) this.getProduceRetryPeriodSeconds() * this.getMaxProduceRetryTimes());
     }
 
 }
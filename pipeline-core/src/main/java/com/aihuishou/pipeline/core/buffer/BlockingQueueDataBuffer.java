@@ -3,14 +3,19 @@ package com.aihuishou.pipeline.core.buffer;
 import com.aihuishou.pipeline.core.utils.ThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 数据缓冲区（基于阻塞式队列）
+ * 由一把锁和两个条件变量实现有界阻塞队列，批量生产和批量消费都只加锁一次
  * @param <T> 数据类型
  * @author ethan zhang
  */
@@ -19,26 +24,37 @@ public class BlockingQueueDataBuffer<T> implements DataBuffer<T> {
 
     private final int capacity;
 
-    private final BlockingQueue<T> queue;
+    private final ArrayDeque<T> queue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
 
     public BlockingQueueDataBuffer(int capacity) {
         this.capacity = capacity;
-        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.queue = new ArrayDeque<>(Math.min(capacity, 1 << 10));
     }
 
     @Override
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return size() == 0;
     }
 
     @Override
     public boolean isFull() {
-        return queue.size() >= capacity;
+        return size() >= capacity;
     }
 
     @Override
     public int size() {
-        return queue.size();
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -48,38 +64,142 @@ public class BlockingQueueDataBuffer<T> implements DataBuffer<T> {
 
     @Override
     public void produce(T data) {
+        lock.lock();
         try {
-            queue.put(data);
+            while (queue.size() >= capacity) {
+                notFull.await();
+            }
+            queue.addLast(data);
+            notEmpty.signal();
         } catch (InterruptedException e) {
             ThreadUtil.interrupt();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public boolean tryProduce(T data) {
-        return queue.offer(data);
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            queue.addLast(data);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        return produceAll(data, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        return produceAll(data, unit.toNanos(timeout));
     }
 
     @Override
     public T consume() {
+        lock.lock();
         try {
-            return queue.take();
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            T head = queue.pollFirst();
+            notFull.signal();
+            return head;
         } catch (InterruptedException e) {
             ThreadUtil.interrupt();
             return null;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public List<T> consumeIfPossible(int maxElements) {
-        T head = queue.poll();
-        if (head == null) {
+        lock.lock();
+        try {
+            return drain(maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (queue.isEmpty() && maxElements > 0) {
+                if (nanos <= 0L) {
+                    return Collections.emptyList();
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return drain(maxElements);
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
             return Collections.emptyList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<T> drain(int maxElements) {
+        if (queue.isEmpty() || maxElements <= 0) {
+            return Collections.emptyList();
+        }
+        int n = Math.min(maxElements, queue.size());
+        List<T> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(queue.pollFirst());
         }
-        List<T> list = new ArrayList<>(maxElements);
-        list.add(head);
-        queue.drainTo(list, maxElements - 1);
+        notFull.signalAll();
         return list;
     }
 
+    /**
+     * 在等待时间内尽可能多地生产，整批只加锁一次，仅在缓冲区已满时释放锁等待
+     */
+    private int produceAll(Collection<? extends T> data, long nanos) {
+        Iterator<? extends T> iterator = data.iterator();
+        int produced = 0;
+        lock.lock();
+        try {
+            while (iterator.hasNext()) {
+                if (queue.size() >= capacity) {
+                    if (produced > 0) {
+                        notEmpty.signalAll();
+                    }
+                    if (nanos <= 0L) {
+                        break;
+                    }
+                    nanos = nanos == Long.MAX_VALUE ? awaitNotFull() : notFull.awaitNanos(nanos);
+                    continue;
+                }
+                queue.addLast(iterator.next());
+                produced++;
+            }
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+        } finally {
+            if (produced > 0) {
+                notEmpty.signalAll();
+            }
+            lock.unlock();
+        }
+        return produced;
+    }
+
+    private long awaitNotFull() throws InterruptedException {
+        notFull.await();
+        return Long.MAX_VALUE;
+    }
+
 }
@@ -0,0 +1,285 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 数据缓冲区（按数据块存放）
+ * 每个槽位存放一整段数据，容量按元素数量计算；批量生产数据块的视图（{@link DataChunk#asList()}）时直接转移所有权，不复制，
+ * 其余集合复制一次；剩余容量不足时只放入能容纳的前缀，剩余部分由生产者稍后重试
+ * 批量消费时按 maxElements 拆分队首的段或合并多个段，只有一段时直接返回该段，队列操作次数与段数而不是元素数相关
+ * 逐个生产的元素追加到队尾的开放段中，该段被消费或其后有新段时关闭
+ * @param <T> 数据类型
+ * @author ethan zhang
+ */
+public class ChunkedDataBuffer<T> implements DataBuffer<T> {
+
+    private final int capacity;
+
+    private final ArrayDeque<List<T>> segments = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * 缓冲区中的元素数量
+     */
+    private int count;
+
+    /**
+     * 队尾的开放段，逐个生产的元素追加到该段
+     */
+    private List<T> openTail;
+
+    public ChunkedDataBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive!");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return size() >= capacity;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    /**
+     * 当前的段数
+     */
+    public int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void produce(T data) {
+        lock.lock();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            append(data);
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryProduce(T data) {
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+            append(data);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        return produceAll(data, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        return produceAll(data, unit.toNanos(timeout));
+    }
+
+    @Override
+    public T consume() {
+        lock.lock();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            List<T> head = poll(1);
+            notFull.signalAll();
+            return head.get(0);
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> consumeIfPossible(int maxElements) {
+        lock.lock();
+        try {
+            return drain(maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count == 0 && maxElements > 0) {
+                if (nanos <= 0L) {
+                    return Collections.emptyList();
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return drain(maxElements);
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return Collections.emptyList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(T data) {
+        if (openTail == null) {
+            openTail = new ArrayList<>();
+            segments.addLast(openTail);
+        }
+        openTail.add(data);
+        count++;
+    }
+
+    /**
+     * 取出至多 maxElements 个元素，多个段时合并为一个数据块
+     */
+    private List<T> drain(int maxElements) {
+        if (count == 0 || maxElements <= 0) {
+            return Collections.emptyList();
+        }
+        List<T> first = poll(maxElements);
+        int remaining = maxElements - first.size();
+        if (remaining == 0 || count == 0) {
+            notFull.signalAll();
+            return first;
+        }
+        List<List<T>> parts = new ArrayList<>();
+        parts.add(first);
+        while (remaining > 0 && count > 0) {
+            List<T> part = poll(remaining);
+            parts.add(part);
+            remaining -= part.size();
+        }
+        notFull.signalAll();
+        return DataChunk.concat(parts).asList();
+    }
+
+    /**
+     * 取出队首的段，超过 maxElements 时拆分，剩余部分留在队首
+     */
+    private List<T> poll(int maxElements) {
+        List<T> head = segments.pollFirst();
+        if (head == openTail) {
+            openTail = null;
+        }
+        if (DataChunk.viewOf(head) == null) {
+            // 开放段及复制得到的段转为只读视图，切片之后不会再被修改
+            head = DataChunk.wrap(head).asList();
+        }
+        if (head.size() > maxElements) {
+            segments.addFirst(head.subList(maxElements, head.size()));
+            head = head.subList(0, maxElements);
+        }
+        count -= head.size();
+        return head;
+    }
+
+    /**
+     * 在等待时间内尽可能多地生产，整批只加锁一次，仅在缓冲区已满时释放锁等待
+     * 剩余容量不足时放入能容纳的前缀，数据块视图切片后仍为视图，不复制
+     */
+    @SuppressWarnings("unchecked")
+    private int produceAll(Collection<? extends T> data, long nanos) {
+        if (data.isEmpty()) {
+            return 0;
+        }
+        List<T> segment = DataChunk.viewOf((Collection<T>) data) != null ? (List<T>) data : new ArrayList<>(data);
+        int produced = 0;
+        lock.lock();
+        try {
+            while (produced < segment.size()) {
+                int free = capacity - count;
+                if (free <= 0) {
+                    if (produced > 0) {
+                        notEmpty.signalAll();
+                    }
+                    if (nanos <= 0L) {
+                        break;
+                    }
+                    nanos = nanos == Long.MAX_VALUE ? awaitNotFull() : notFull.awaitNanos(nanos);
+                    continue;
+                }
+                int n = Math.min(free, segment.size() - produced);
+                List<T> part = produced == 0 && n == segment.size() ? segment : segment.subList(produced, produced + n);
+                openTail = null;
+                segments.addLast(part);
+                count += n;
+                produced += n;
+            }
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+        } finally {
+            if (produced > 0) {
+                notEmpty.signalAll();
+            }
+            lock.unlock();
+        }
+        return produced;
+    }
+
+    private long awaitNotFull() throws InterruptedException {
+        notFull.await();
+        return Long.MAX_VALUE;
+    }
+
+}
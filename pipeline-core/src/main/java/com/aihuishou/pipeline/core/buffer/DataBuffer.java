@@ -1,6 +1,11 @@
 package com.aihuishou.pipeline.core.buffer;
 
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 数据缓冲区
@@ -36,6 +41,26 @@ public interface DataBuffer<T> {
      */
     int capacity();
 
+    /**
+     * 是否整段存放数据块，即批量生产的数据块视图（{@link com.aihuishou.pipeline.core.context.DataChunk#asList()}）原样交给消费者，不逐个元素复制
+     */
+    default boolean isChunked() {
+        return false;
+    }
+
+    /**
+     * 任务结束（完成、失败、关闭）后释放缓冲区占用的资源，如按字节限制的缓冲区归还内存预算；默认不做处理
+     */
+    default void release() {}
+
+    /**
+     * 缓冲区占用比例（0 ~ 1），容量不大于 0 时返回 0
+     */
+    default double fillRatio() {
+        int capacity = capacity();
+        return capacity > 0 ? Math.min(1D, (double) size() / capacity) : 0D;
+    }
+
     /**
      * 生产元素，若缓冲区已满，阻塞直到有空闲位置
      */
@@ -46,6 +71,39 @@ public interface DataBuffer<T> {
      */
     boolean tryProduce(T data);
 
+    /**
+     * 批量生产元素，若缓冲区已满，阻塞直到全部生产完成，返回生产成功的元素数量
+     */
+    default int produceAll(Collection<? extends T> data) {
+        int produced = 0;
+        for (T t : data) {
+            if (ThreadUtil.isCurThreadInterrupted()) {
+                break;
+            }
+            produce(t);
+            produced++;
+        }
+        return produced;
+    }
+
+    /**
+     * 尝试批量生产元素，按集合顺序在超时时间内尽可能多地生产，返回生产成功的元素数量（即前 n 个元素生产成功）
+     */
+    default int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int produced = 0;
+        for (T t : data) {
+            while (!tryProduce(t)) {
+                if (System.nanoTime() - deadline >= 0 || ThreadUtil.isCurThreadInterrupted()) {
+                    return produced;
+                }
+                LockSupport.parkNanos(1L);
+            }
+            produced++;
+        }
+        return produced;
+    }
+
     /**
      * 消费元素，若缓冲区为空，阻塞直到有元素可消费
      */
@@ -56,4 +114,18 @@ public interface DataBuffer<T> {
      */
     List<T> consumeIfPossible(int maxElements);
 
+    /**
+     * 消费固定数量的元素，若缓冲区为空，阻塞直到有元素可消费或等待超时（超时返回空集合）
+     */
+    default List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            List<T> list = consumeIfPossible(maxElements);
+            if (!list.isEmpty() || System.nanoTime() - deadline >= 0 || ThreadUtil.isCurThreadInterrupted()) {
+                return list;
+            }
+            LockSupport.parkNanos(1L);
+        }
+    }
+
 }
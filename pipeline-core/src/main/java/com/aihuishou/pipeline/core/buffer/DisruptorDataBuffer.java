@@ -1,47 +1,79 @@
 package com.aihuishou.pipeline.core.buffer;
 
 import com.aihuishou.pipeline.core.common.LocalHolder;
-import com.lmax.disruptor.dsl.Disruptor;
-import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+import com.lmax.disruptor.EventPoller;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 数据缓冲区（基于 disruptor 实现）
+ * 消费者通过 {@link EventPoller} 直接从环形队列中按序号区间批量取数，不再经过中转队列和额外的消费线程
  * @param <T> 数据类型
  * @author ethan zhang
  */
 public class DisruptorDataBuffer<T> implements DataBuffer<T> {
 
-    private final Disruptor<LocalHolder<T>> disruptor;
+    private final RingBuffer<LocalHolder<T>> ringBuffer;
 
-    private final ConcurrentLinkedQueue<T> buffer;
+    /**
+     * 消费者轮询器，其序号即为消费进度，同时作为生产者的门控序号
+     */
+    private final EventPoller<LocalHolder<T>> poller;
+
+    /**
+     * 轮询器非线程安全，多个消费者竞争消费时需串行化
+     */
+    private final ReentrantLock consumeLock = new ReentrantLock();
+
+    /**
+     * 缓冲区为空时消费者在此等待，生产者发布后仅在有消费者等待时才加锁唤醒
+     */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition notEmpty = waitLock.newCondition();
+
+    private final AtomicBoolean signalNeeded = new AtomicBoolean();
+
+    /**
+     * 缓冲区已满时生产者在此等待，消费者取数后仅在有生产者等待时才加锁唤醒
+     */
+    private final Condition notFull = waitLock.newCondition();
+
+    private final AtomicBoolean producerSignalNeeded = new AtomicBoolean();
 
     private final int actualCapacity;
 
     public DisruptorDataBuffer(int capacity) {
         actualCapacity = capacityFor(capacity);
-        disruptor = new Disruptor<>(LocalHolder::new, actualCapacity, DaemonThreadFactory.INSTANCE);
-        disruptor.handleEventsWith(this::onEvent);
-        buffer = new ConcurrentLinkedQueue<>();
-        disruptor.start();
+        ringBuffer = RingBuffer.createMultiProducer(LocalHolder::new, actualCapacity);
+        poller = ringBuffer.newPoller();
+        ringBuffer.addGatingSequences(poller.getSequence());
     }
 
     @Override
     public boolean isEmpty() {
-        return (disruptor.getRingBuffer().remainingCapacity() == disruptor.getBufferSize()) && buffer.isEmpty();
+        return size() == 0;
     }
 
     @Override
     public boolean isFull() {
-        return disruptor.getRingBuffer().remainingCapacity() == 0;
+        return size() >= actualCapacity;
     }
 
     @Override
     public int size() {
-        return (int) (disruptor.getBufferSize() - disruptor.getRingBuffer().remainingCapacity());
+        return (int) (ringBuffer.getCursor() - poller.getSequence().get());
     }
 
     @Override
@@ -51,56 +83,193 @@ public class DisruptorDataBuffer<T> implements DataBuffer<T> {
 
     @Override
     public void produce(T data) {
-        disruptor.getRingBuffer().publishEvent(this::translate, data);
+        ringBuffer.publishEvent(this::translate, data);
+        signalConsumers();
     }
 
     @Override
     public boolean tryProduce(T data) {
-        return disruptor.getRingBuffer().tryPublishEvent(this::translate, data);
+        if (ringBuffer.tryPublishEvent(this::translate, data)) {
+            signalConsumers();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        Iterator<? extends T> iterator = data.iterator();
+        int total = data.size();
+        int produced = 0;
+        while (produced < total) {
+            if (ThreadUtil.isCurThreadInterrupted()) {
+                break;
+            }
+            // 每次最多申请一整圈的序号区间，空间不足时先在 notFull 上等待，避免在 disruptor 内部自旋
+            int n = Math.min(total - produced, actualCapacity);
+            if (ringBuffer.remainingCapacity() < n && awaitNotFull(n, Long.MAX_VALUE) < 0L) {
+                break;
+            }
+            long hi = ringBuffer.next(n);
+            publishRange(iterator, hi - n + 1, hi);
+            produced += n;
+        }
+        return produced;
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        Iterator<? extends T> iterator = data.iterator();
+        int total = data.size();
+        int produced = 0;
+        while (produced < total) {
+            // 按剩余容量申请连续的序号区间，一次发布
+            int n = (int) Math.min(total - produced, ringBuffer.remainingCapacity());
+            if (n > 0) {
+                try {
+                    long hi = ringBuffer.tryNext(n);
+                    publishRange(iterator, hi - n + 1, hi);
+                    produced += n;
+                    continue;
+                } catch (InsufficientCapacityException e) {
+                    // 与其他生产者竞争失败，重新计算剩余容量
+                }
+            }
+            if (nanos <= 0L || ThreadUtil.isCurThreadInterrupted()) {
+                break;
+            }
+            nanos = awaitNotFull(1, nanos);
+        }
+        return produced;
     }
 
     @Override
     public T consume() {
-        while (true) {
-            T head = buffer.poll();
-            if (head != null) {
-                return head;
-            } else {
-                Thread.yield();
+        while (!ThreadUtil.isCurThreadInterrupted()) {
+            List<T> list = consume(1, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (!list.isEmpty()) {
+                return list.get(0);
             }
         }
+        return null;
     }
 
     @Override
-    public List<T> consumeIfPossible(int maxsize) {
-        List<T> list = new ArrayList<>(maxsize);
-        while (true) {
-            if (list.size() >= maxsize) {
-                return list;
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        List<T> list = consumeIfPossible(maxElements);
+        long nanos = unit.toNanos(timeout);
+        if (!list.isEmpty() || maxElements <= 0 || nanos <= 0L) {
+            return list;
+        }
+        waitLock.lock();
+        try {
+            while (true) {
+                // 先声明需要唤醒再检查缓冲区，保证与生产者的发布不会错过彼此
+                signalNeeded.getAndSet(true);
+                list = consumeIfPossible(maxElements);
+                if (!list.isEmpty() || nanos <= 0L) {
+                    return list;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
             }
-            T head = buffer.poll();
-            if (head == null) {
-                return list;
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return Collections.emptyList();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> consumeIfPossible(int maxElements) {
+        if (maxElements <= 0 || isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> list = new ArrayList<>(Math.min(maxElements, actualCapacity));
+        consumeLock.lock();
+        try {
+            poller.poll((event, sequence, endOfBatch) -> {
+                list.add(event.get());
+                // 取出后清空槽位，避免环形队列长期持有已消费元素的引用
+                event.reset();
+                return list.size() < maxElements;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            consumeLock.unlock();
+        }
+        if (!list.isEmpty()) {
+            signalProducers();
+        }
+        return list;
+    }
+
+    private void publishRange(Iterator<? extends T> iterator, long lo, long hi) {
+        try {
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                ringBuffer.get(sequence).set(iterator.next());
             }
-            list.add(head);
+        } finally {
+            ringBuffer.publish(lo, hi);
+            signalConsumers();
         }
     }
 
-    private void translate(LocalHolder<T> event, long sequence, T data) {
-        event.set(data);
+    private void signalConsumers() {
+        if (signalNeeded.getAndSet(false)) {
+            waitLock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
     }
 
-    private void onEvent(LocalHolder<T> event, long sequence, boolean endOfBatch) {
-        while (true) {
-            if (buffer.size() < actualCapacity) {
-                buffer.offer(event.get());
-                return;
-            } else {
-                Thread.yield();
+    private void signalProducers() {
+        if (producerSignalNeeded.getAndSet(false)) {
+            waitLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                waitLock.unlock();
             }
         }
     }
 
+    /**
+     * 等待剩余容量不少于 n 或超时，返回剩余的等待时间，被中断时返回 -1
+     */
+    private long awaitNotFull(int n, long nanos) {
+        waitLock.lock();
+        try {
+            while (true) {
+                // 先声明需要唤醒再检查剩余容量，保证与消费者的取数不会错过彼此
+                producerSignalNeeded.getAndSet(true);
+                if (ringBuffer.remainingCapacity() >= n || nanos <= 0L) {
+                    return nanos;
+                }
+                nanos = nanos == Long.MAX_VALUE ? awaitNotFull() : notFull.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return -1L;
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    private long awaitNotFull() throws InterruptedException {
+        notFull.await();
+        return Long.MAX_VALUE;
+    }
+
+    private void translate(LocalHolder<T> event, long sequence, T data) {
+        event.set(data);
+    }
+
     private int capacityFor(int cap) {
         int n = cap - 1;
         n |= n >>> 1;
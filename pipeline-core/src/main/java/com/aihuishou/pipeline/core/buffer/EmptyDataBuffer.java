@@ -1,6 +1,8 @@
 package com.aihuishou.pipeline.core.buffer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 class EmptyDataBuffer<T> implements DataBuffer<T> {
 
@@ -36,6 +38,16 @@ class EmptyDataBuffer<T> implements DataBuffer<T> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public T consume() {
         throw new UnsupportedOperationException();
@@ -46,4 +58,9 @@ class EmptyDataBuffer<T> implements DataBuffer<T> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
 }
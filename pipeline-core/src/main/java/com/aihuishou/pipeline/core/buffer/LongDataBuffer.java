@@ -0,0 +1,261 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.context.LongDataChunk;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * long 数据缓冲区（基于 long 环形数组）
+ * 每个元素只占 8 字节，不装箱；批量生产 {@link LongDataChunk} 的视图时整段复制数组，批量消费返回 {@link LongDataChunk} 的视图
+ * 与 {@link BlockingQueueDataBuffer} 一样由一把锁和两个条件变量实现，批量生产和批量消费都只加锁一次，不接受 null
+ * @author ethan zhang
+ */
+public class LongDataBuffer implements DataBuffer<Long> {
+
+    private final long[] ring;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * 队首位置
+     */
+    private int head;
+
+    private int count;
+
+    public LongDataBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive!");
+        }
+        this.ring = new long[capacity];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return size() >= ring.length;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return ring.length;
+    }
+
+    @Override
+    public void produce(Long data) {
+        produceLong(data);
+    }
+
+    @Override
+    public boolean tryProduce(Long data) {
+        return tryProduceLong(data);
+    }
+
+    /**
+     * 生产元素，若缓冲区已满，阻塞直到有空闲位置
+     */
+    public void produceLong(long data) {
+        lock.lock();
+        try {
+            while (count >= ring.length) {
+                notFull.await();
+            }
+            enqueue(data);
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 尝试生产元素，若缓冲区已满，则生产失败，返回 false
+     */
+    public boolean tryProduceLong(long data) {
+        lock.lock();
+        try {
+            if (count >= ring.length) {
+                return false;
+            }
+            enqueue(data);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int produceAll(Collection<? extends Long> data) {
+        return produceAll(data, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends Long> data, long timeout, TimeUnit unit) {
+        return produceAll(data, unit.toNanos(timeout));
+    }
+
+    @Override
+    public Long consume() {
+        lock.lock();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            long value = ring[head];
+            head = (head + 1) % ring.length;
+            count--;
+            notFull.signal();
+            return value;
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Long> consumeIfPossible(int maxElements) {
+        return consumeLongsIfPossible(maxElements).asList();
+    }
+
+    @Override
+    public List<Long> consume(int maxElements, long timeout, TimeUnit unit) {
+        LongDataChunk chunk = consumeLongs(maxElements, timeout, unit);
+        return chunk.isEmpty() ? Collections.emptyList() : chunk.asList();
+    }
+
+    /**
+     * 尝试消费固定数量的元素，若缓冲区的元素数量不足则消费所有可消费的元素
+     */
+    public LongDataChunk consumeLongsIfPossible(int maxElements) {
+        lock.lock();
+        try {
+            return drain(maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 消费固定数量的元素，若缓冲区为空，阻塞直到有元素可消费或等待超时（超时返回空数据块）
+     */
+    public LongDataChunk consumeLongs(int maxElements, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count == 0 && maxElements > 0) {
+                if (nanos <= 0L) {
+                    return drain(0);
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return drain(maxElements);
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return drain(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(long data) {
+        ring[(head + count) % ring.length] = data;
+        count++;
+    }
+
+    /**
+     * 取出至多 maxElements 个元素，环形数组回绕时分两段复制
+     */
+    private LongDataChunk drain(int maxElements) {
+        int n = Math.min(Math.max(maxElements, 0), count);
+        long[] array = new long[n];
+        if (n > 0) {
+            int first = Math.min(n, ring.length - head);
+            System.arraycopy(ring, head, array, 0, first);
+            System.arraycopy(ring, 0, array, first, n - first);
+            head = (head + n) % ring.length;
+            count -= n;
+            notFull.signalAll();
+        }
+        return LongDataChunk.wrap(array, 0, n);
+    }
+
+    /**
+     * 在等待时间内尽可能多地生产，整批只加锁一次，仅在缓冲区已满时释放锁等待
+     * long 数据块的视图按段复制数组，其余集合逐个拆箱
+     */
+    private int produceAll(Collection<? extends Long> data, long nanos) {
+        LongDataChunk chunk = LongDataChunk.unwrap(data);
+        Iterator<? extends Long> iterator = chunk == null ? data.iterator() : null;
+        int total = data.size();
+        int produced = 0;
+        lock.lock();
+        try {
+            while (produced < total) {
+                if (count >= ring.length) {
+                    if (produced > 0) {
+                        notEmpty.signalAll();
+                    }
+                    if (nanos <= 0L) {
+                        break;
+                    }
+                    nanos = nanos == Long.MAX_VALUE ? awaitNotFull() : notFull.awaitNanos(nanos);
+                    continue;
+                }
+                if (chunk == null) {
+                    enqueue(iterator.next());
+                    produced++;
+                } else {
+                    // 复制到队尾的连续空闲区间，回绕部分留到下一轮
+                    int tail = (head + count) % ring.length;
+                    int n = Math.min(total - produced, Math.min(ring.length - count, ring.length - tail));
+                    chunk.slice(produced, produced + n).copyTo(ring, tail);
+                    count += n;
+                    produced += n;
+                }
+            }
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+        } finally {
+            if (produced > 0) {
+                notEmpty.signalAll();
+            }
+            lock.unlock();
+        }
+        return produced;
+    }
+
+    private long awaitNotFull() throws InterruptedException {
+        notFull.await();
+        return Long.MAX_VALUE;
+    }
+
+}
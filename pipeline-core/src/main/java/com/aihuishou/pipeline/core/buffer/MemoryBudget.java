@@ -0,0 +1,112 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 内存预算（所有任务共享），预算上限取 {@link GlobalConfig.Buffer#getMemoryBudget()}，修改后立即生效
+ * 申请按到达顺序排队，队首申请得到满足之前后到的申请不会越过它，避免大的申请一直得不到满足
+ * @author ethan zhang
+ */
+public enum MemoryBudget {
+
+    INSTANCE;
+
+    /**
+     * 单次等待的最长时间，目标缓冲区被清空时不一定有字节归还，到期后重新判断 overdraft
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    /**
+     * 等待中的申请，按到达顺序排列
+     */
+    private final ArrayDeque<Object> waiters = new ArrayDeque<>();
+
+    private long used;
+
+    /**
+     * 在等待时间内申请 bytes 字节，超时返回 false
+     * overdraft 在等待期间（每次有字节归还时）重新判断，为 true 时立即申请成功，允许超出预算；
+     * 用于目标缓冲区为空的情况，保证每个缓冲区至少能放入一批数据，上下游之间不会因预算互相等待
+     */
+    public boolean acquire(long bytes, long timeoutNanos, BooleanSupplier overdraft) {
+        lock.lock();
+        try {
+            if ((waiters.isEmpty() && fits(bytes)) || overdraft.getAsBoolean()) {
+                used += bytes;
+                return true;
+            }
+            Object ticket = new Object();
+            waiters.addLast(ticket);
+            long nanos = timeoutNanos;
+            try {
+                while ((waiters.peekFirst() != ticket || !fits(bytes)) && !overdraft.getAsBoolean()) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    long wait = Math.min(nanos, MAX_WAIT_NANOS);
+                    nanos -= wait - Math.max(0L, released.awaitNanos(wait));
+                }
+                used += bytes;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiters.remove(ticket);
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        if (bytes <= 0L) {
+            return;
+        }
+        lock.lock();
+        try {
+            used = Math.max(0L, used - bytes);
+            if (!waiters.isEmpty()) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已使用的字节数
+     */
+    public long getUsed() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLimit() {
+        return GlobalConfig.BUFFER.getMemoryBudget();
+    }
+
+    /**
+     * 预算不大于 0 时不限制；已用为 0 时超出预算的申请也可以满足，避免永远无法满足
+     */
+    private boolean fits(long bytes) {
+        long limit = getLimit();
+        return limit <= 0L || used == 0L || used + bytes <= limit;
+    }
+
+}
@@ -0,0 +1,431 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按字节限制的数据缓冲区（装饰任意 {@link DataBuffer}）
+ * 生产前按 {@link Weigher} 计算重量，先占用本缓冲区的字节容量，再向所有任务共享的 {@link MemoryBudget} 申请，
+ * 两者都满足后才写入被装饰的缓冲区；容量不足时只写入能容纳的前缀
+ * 生产时记录的重量按写入顺序排队，消费时按消费的元素个数归还记录的重量，不重新计算，元素在缓冲区中发生变化也不会导致计数偏差
+ * 被装饰的缓冲区为空时总能放入至少一批数据（允许超出预算），保证上下游之间不会因预算互相等待
+ * 任务结束后调用 {@link #release()} 丢弃剩余数据并归还其占用的字节
+ * @param <T> 数据类型
+ * @author ethan zhang
+ */
+public class WeighedDataBuffer<T> implements DataBuffer<T> {
+
+    private final DataBuffer<T> delegate;
+
+    private final Weigher<? super T> weigher;
+
+    /**
+     * 字节容量，不大于 0 时只受内存预算限制
+     */
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * 生产者之间串行写入被装饰的缓冲区，保证重量队列与元素顺序一致
+     */
+    private final ReentrantLock produceLock = new ReentrantLock();
+
+    /**
+     * 已写入（或正在写入）被装饰缓冲区的元素重量，与元素顺序一致
+     */
+    private final WeightQueue weights = new WeightQueue();
+
+    /**
+     * 已占用的字节数，包括已占用但尚未写入被装饰缓冲区的部分
+     */
+    private long bytes;
+
+    private volatile boolean released;
+
+    public WeighedDataBuffer(DataBuffer<T> delegate, Weigher<? super T> weigher, long maxBytes) {
+        this.delegate = delegate;
+        this.weigher = weigher;
+        this.maxBytes = maxBytes;
+    }
+
+    public DataBuffer<T> getDelegate() {
+        return delegate;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 已占用的字节数
+     */
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean isFull() {
+        return delegate.isFull() || (maxBytes > 0L && getBytes() >= maxBytes);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int capacity() {
+        return delegate.capacity();
+    }
+
+    @Override
+    public boolean isChunked() {
+        return delegate.isChunked();
+    }
+
+    /**
+     * 取元素数量与字节数占用比例中较大的一个
+     */
+    @Override
+    public double fillRatio() {
+        double byteRatio = maxBytes > 0L ? Math.min(1D, (double) getBytes() / maxBytes) : 0D;
+        return Math.max(delegate.fillRatio(), byteRatio);
+    }
+
+    @Override
+    public void produce(T data) {
+        produceAll(Collections.singletonList(data), Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean tryProduce(T data) {
+        return produceAll(Collections.singletonList(data), 0L) == 1;
+    }
+
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        return produceAll(data, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        return produceAll(data, unit.toNanos(timeout));
+    }
+
+    @Override
+    public T consume() {
+        T data = delegate.consume();
+        if (data != null) {
+            consumed(1);
+        }
+        return data;
+    }
+
+    @Override
+    public List<T> consumeIfPossible(int maxElements) {
+        List<T> data = delegate.consumeIfPossible(maxElements);
+        consumed(data.size());
+        return data;
+    }
+
+    @Override
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        List<T> data = delegate.consume(maxElements, timeout, unit);
+        consumed(data.size());
+        return data;
+    }
+
+    /**
+     * 丢弃剩余数据并归还其占用的字节，之后生产的数据直接丢弃（视为写入成功，避免上游生产者空转重试）；正在写入的生产者写入后自行丢弃
+     */
+    @Override
+    public void release() {
+        released = true;
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        discard();
+    }
+
+    /**
+     * 在等待时间内尽可能多地生产，nanos 为 Long.MAX_VALUE 时一直等待
+     * 按前缀占用字节容量和内存预算后写入，被装饰的缓冲区未全部接收时归还剩余部分
+     * 缓冲区已释放时数据直接丢弃，返回数据总数
+     */
+    @SuppressWarnings("unchecked")
+    private int produceAll(Collection<? extends T> data, long nanos) {
+        if (released) {
+            return data.size();
+        }
+        if (data.isEmpty()) {
+            return 0;
+        }
+        List<T> list = data instanceof List ? (List<T>) data : new ArrayList<>(data);
+        long[] weighed = new long[list.size()];
+        for (int i = 0; i < weighed.length; i++) {
+            weighed[i] = weigher.weigh(list.get(i));
+        }
+        boolean blocking = nanos == Long.MAX_VALUE;
+        long deadline = blocking ? 0L : System.nanoTime() + nanos;
+        int produced = 0;
+        while (produced < weighed.length) {
+            long remaining = blocking ? Long.MAX_VALUE : deadline - System.nanoTime();
+            Reservation reservation = reserve(weighed, produced, remaining);
+            if (reservation == null) {
+                break;
+            }
+            remaining = blocking ? Long.MAX_VALUE : deadline - System.nanoTime();
+            if (!MemoryBudget.INSTANCE.acquire(reservation.weight, remaining, delegate::isEmpty)) {
+                unreserve(reservation.weight);
+                break;
+            }
+            int end = produced + reservation.count;
+            int accepted = write(list.subList(produced, end), weighed, produced, end, blocking ? -1L : deadline);
+            produced += accepted;
+            if (accepted < reservation.count) {
+                break;
+            }
+        }
+        return released ? list.size() : produced;
+    }
+
+    /**
+     * 重量入队后写入被装饰的缓冲区，未接收部分的重量出队并归还，deadline 小于 0 时一直等待
+     */
+    private int write(List<T> part, long[] weighed, int from, int to, long deadline) {
+        int accepted = 0;
+        produceLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (!released) {
+                    weights.addAll(weighed, from, to);
+                    accepted = -1;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (accepted == 0) {
+                free(sum(weighed, from, to));
+                return 0;
+            }
+            accepted = deadline < 0L ? delegate.produceAll(part)
+                    : delegate.tryProduceAll(part, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (accepted < part.size()) {
+                lock.lock();
+                try {
+                    weights.removeLast(part.size() - accepted);
+                } finally {
+                    lock.unlock();
+                }
+                free(sum(weighed, from + accepted, to));
+            }
+        } finally {
+            produceLock.unlock();
+        }
+        if (released) {
+            // 写入期间缓冲区被释放，写入的数据一并丢弃
+            discard();
+            return 0;
+        }
+        return accepted;
+    }
+
+    /**
+     * 从 from 开始占用能容纳的最长前缀，空缓冲区至少占用一个元素，等待超时或缓冲区已释放时返回 null
+     */
+    private Reservation reserve(long[] weighed, int from, long nanos) {
+        lock.lock();
+        try {
+            while (!released) {
+                boolean empty = bytes == 0L;
+                long free = maxBytes > 0L ? maxBytes - bytes : Long.MAX_VALUE;
+                int count = 0;
+                long weight = 0L;
+                while (from + count < weighed.length && (weight + weighed[from + count] <= free || (empty && count == 0))) {
+                    weight += weighed[from + count];
+                    count++;
+                }
+                if (count > 0) {
+                    bytes += weight;
+                    return new Reservation(count, weight);
+                }
+                if (nanos <= 0L) {
+                    return null;
+                }
+                if (nanos == Long.MAX_VALUE) {
+                    notFull.await();
+                } else {
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unreserve(long weight) {
+        lock.lock();
+        try {
+            bytes -= weight;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按消费的元素个数归还生产时记录的重量
+     */
+    private void consumed(int count) {
+        if (count <= 0) {
+            return;
+        }
+        long weight;
+        lock.lock();
+        try {
+            weight = weights.poll(count);
+            bytes -= weight;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        MemoryBudget.INSTANCE.release(weight);
+    }
+
+    /**
+     * 归还本缓冲区的字节容量及内存预算
+     */
+    private void free(long weight) {
+        if (weight <= 0L) {
+            return;
+        }
+        lock.lock();
+        try {
+            bytes -= weight;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        MemoryBudget.INSTANCE.release(weight);
+    }
+
+    /**
+     * 取出并丢弃被装饰缓冲区中的所有数据
+     */
+    private void discard() {
+        List<T> data;
+        while (!(data = delegate.consumeIfPossible(Integer.MAX_VALUE)).isEmpty()) {
+            consumed(data.size());
+        }
+    }
+
+    private static long sum(long[] weighed, int from, int to) {
+        long sum = 0L;
+        for (int i = from; i < to; i++) {
+            sum += weighed[i];
+        }
+        return sum;
+    }
+
+    private static class Reservation {
+
+        private final int count;
+
+        private final long weight;
+
+        private Reservation(int count, long weight) {
+            this.count = count;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * 重量队列（基于可扩容的 long 环形数组），不装箱
+     */
+    private static class WeightQueue {
+
+        private long[] elements = new long[16];
+
+        private int head;
+
+        private int size;
+
+        private void addAll(long[] weighed, int from, int to) {
+            int n = to - from;
+            if (size + n > elements.length) {
+                grow(size + n);
+            }
+            int mask = elements.length - 1;
+            for (int i = from; i < to; i++) {
+                elements[(head + size++) & mask] = weighed[i];
+            }
+        }
+
+        /**
+         * 从队首取出 n 个重量，返回其和
+         */
+        private long poll(int n) {
+            n = Math.min(n, size);
+            int mask = elements.length - 1;
+            long sum = 0L;
+            for (int i = 0; i < n; i++) {
+                sum += elements[(head + i) & mask];
+            }
+            head = (head + n) & mask;
+            size -= n;
+            return sum;
+        }
+
+        /**
+         * 从队尾移除 n 个重量
+         */
+        private void removeLast(int n) {
+            size -= Math.min(n, size);
+        }
+
+        private void grow(int minCapacity) {
+            int capacity = elements.length;
+            while (capacity < minCapacity) {
+                capacity <<= 1;
+            }
+            long[] grown = new long[capacity];
+            int mask = elements.length - 1;
+            for (int i = 0; i < size; i++) {
+                grown[i] = elements[(head + i) & mask];
+            }
+            elements = grown;
+            head = 0;
+        }
+
+    }
+
+}
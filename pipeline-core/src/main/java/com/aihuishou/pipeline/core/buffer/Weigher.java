@@ -0,0 +1,29 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.utils.ObjectSizeUtil;
+
+/**
+ * 缓冲区元素的字节数估算，只在生产时计算，消费时归还生产时记录的重量
+ * @param <T> 数据类型
+ * @author ethan zhang
+ */
+@FunctionalInterface
+public interface Weigher<T> {
+
+    long weigh(T element);
+
+    /**
+     * 每个元素固定字节数
+     */
+    static <T> Weigher<T> fixed(long bytes) {
+        return element -> bytes;
+    }
+
+    /**
+     * 按对象结构粗略估算，见 {@link ObjectSizeUtil#estimate(Object)}
+     */
+    static <T> Weigher<T> estimated() {
+        return ObjectSizeUtil::estimate;
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.aihuishou.pipeline.core.config;
 
+import com.aihuishou.pipeline.core.buffer.Weigher;
 import com.aihuishou.pipeline.core.reporter.LoggerTaskReporter;
 import com.aihuishou.pipeline.core.reporter.TaskReporter;
+import com.aihuishou.pipeline.core.strategy.EventOverflowPolicy;
+import com.aihuishou.pipeline.core.strategy.IdleStrategyType;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -28,6 +31,10 @@ public interface GlobalConfig {
 
     Reporter REPORTER = new Reporter();
 
+    Warnning WARNNING = new Warnning();
+
+    Cooperative COOPERATIVE = new Cooperative();
+
     @Getter
     @Setter
     class Reader {
@@ -38,6 +45,8 @@ public interface GlobalConfig {
 
         private int produceWaitSeconds = 5;
 
+        private IdleStrategyType idleStrategy = IdleStrategyType.BLOCKING;
+
     }
 
     @Getter
@@ -52,6 +61,44 @@ public interface GlobalConfig {
 
         private int maxConsumeCount = 100;
 
+        private int minBatchSize = 1;
+
+        private Duration maxLinger = Duration.ZERO;
+
+        private IdleStrategyType idleStrategy = IdleStrategyType.BLOCKING;
+
+        /**
+         * 自动伸缩的采样周期
+         */
+        private Duration scaleSamplePeriod = Duration.ofSeconds(1);
+
+        /**
+         * 输入缓冲区占用率不低于该值时扩容
+         */
+        private double scaleUpFillRatio = 0.8D;
+
+        /**
+         * 输入缓冲区占用率不高于该值，且空闲时间占比不低于 scaleDownIdleRatio 时缩容
+         */
+        private double scaleDownFillRatio = 0.2D;
+
+        private double scaleDownIdleRatio = 0.5D;
+
+        /**
+         * 写出阻塞时间占比不低于该值时说明下游处理不过来，不再扩容并且缩容
+         */
+        private double scaleDownBlockedRatio = 0.5D;
+
+        /**
+         * 连续满足条件的采样次数，达到后才伸缩，避免抖动
+         */
+        private int scaleSamples = 3;
+
+        /**
+         * 两次伸缩之间的最短间隔
+         */
+        private Duration scaleCooldown = Duration.ofSeconds(5);
+
     }
 
     @Getter
@@ -62,6 +109,12 @@ public interface GlobalConfig {
 
         private int maxConsumeCount = 100;
 
+        private int minBatchSize = 1;
+
+        private Duration maxLinger = Duration.ZERO;
+
+        private IdleStrategyType idleStrategy = IdleStrategyType.BLOCKING;
+
     }
 
     @Getter
@@ -70,6 +123,26 @@ public interface GlobalConfig {
 
         private int bufferSize = 1 << 10;
 
+        /**
+         * 缓冲区为空时消费者单次阻塞等待的最长时间，超时后重新检查上游状态
+         */
+        private Duration consumeTimeout = Duration.ofMillis(100);
+
+        /**
+         * 缓冲区元素的字节数估算，未指定时缓冲区只按元素数量限制，不计入内存预算
+         */
+        private Weigher<Object> weigher;
+
+        /**
+         * 单个缓冲区的字节容量，不大于 0 时只受内存预算限制
+         */
+        private long maxBytes;
+
+        /**
+         * 所有任务共享的内存预算（字节），按字节限制的缓冲区中的数据总量不超过该值，不大于 0 时不限制
+         */
+        private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
     }
 
     @Getter
@@ -78,6 +151,16 @@ public interface GlobalConfig {
 
         private Duration reportPeriod = Duration.ofMinutes(1);
 
+        /**
+         * 报告调度器时间轮的 tick 长度，即报告和超时检查的时间精度
+         */
+        private Duration tickDuration = Duration.ofMillis(100);
+
+        /**
+         * 瓶颈分析周期，为 0 时不分析
+         */
+        private Duration bottleneckAnalyzePeriod = Duration.ofSeconds(30);
+
         private Supplier<TaskReporter> defaultReporter = () -> LoggerTaskReporter.INSTANCE;
 
     }
@@ -111,6 +194,72 @@ public interface GlobalConfig {
 
         private int bufferSize = 1 << 10;
 
+        /**
+         * 事件处理分区数，同一任务的事件总在同一分区内按序处理
+         */
+        private int partitions = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 分发队列已满时的溢出策略
+         */
+        private EventOverflowPolicy overflowPolicy = EventOverflowPolicy.DROP_OLDEST;
+
+        /**
+         * 溢出队列中可丢弃事件的最大数量（生命周期事件不受限制）
+         */
+        private int overflowCapacity = 1 << 10;
+
+        /**
+         * 每个任务保留的事件流长度，超出时优先淘汰最早的警告事件
+         */
+        private int eventStreamCapacity = 1 << 8;
+
+    }
+
+    @Getter
+    @Setter
+    class Warnning {
+
+        private Warnning() {}
+
+        /**
+         * 每类警告（原因，异常类型）保留并发布的样例数
+         */
+        private int exemplarSize = 10;
+
+        /**
+         * 样例之外每 N 条警告发布一条原始警告事件，0 表示只发布样例
+         */
+        private long sampleRate = 1000;
+
+        /**
+         * 警告汇总事件的发布周期（由任务调度器定期发布），不大于 0 时只在任务结束时发布最终汇总
+         */
+        private Duration summaryInterval = Duration.ofSeconds(30);
+
+    }
+
+    @Getter
+    @Setter
+    class Cooperative {
+
+        private Cooperative() {}
+
+        /**
+         * 协作式调度器的工作线程数，所有协作式任务共享
+         */
+        private int workers = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 阶段每次被调度最多处理的批次数，之后让出工作线程
+         */
+        private int sliceChunks = 16;
+
+        /**
+         * 阶段等待时的最长休眠时间，到期后即使没有被唤醒也会重新检查一次
+         */
+        private Duration maxWait = Duration.ofSeconds(1);
+
     }
 
 }
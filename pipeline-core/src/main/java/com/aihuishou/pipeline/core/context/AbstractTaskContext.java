@@ -3,6 +3,8 @@ package com.aihuishou.pipeline.core.context;
 import com.aihuishou.pipeline.core.buffer.DataBuffer;
 import com.aihuishou.pipeline.core.common.Counter;
 import com.aihuishou.pipeline.core.common.Holder;
+import com.aihuishou.pipeline.core.event.TaskWarnningAggregator;
+import com.aihuishou.pipeline.core.metrics.TaskMetrics;
 import com.aihuishou.pipeline.core.task.PipeTask;
 import lombok.Setter;
 
@@ -26,6 +28,12 @@ public abstract class AbstractTaskContext<I, O> implements TaskContext<I, O> {
 
     protected Counter writerCounter;
 
+    protected Counter droppedEventCounter;
+
+    protected final TaskWarnningAggregator warnningAggregator = new TaskWarnningAggregator();
+
+    protected final TaskMetrics metrics = new TaskMetrics();
+
     protected TaskStateHolder readerState;
 
     protected TaskStateHolder processorState;
@@ -79,6 +87,21 @@ public abstract class AbstractTaskContext<I, O> implements TaskContext<I, O> {
         return writerCounter;
     }
 
+    @Override
+    public Counter getDroppedEventCounter() {
+        return droppedEventCounter;
+    }
+
+    @Override
+    public TaskWarnningAggregator getWarnningAggregator() {
+        return warnningAggregator;
+    }
+
+    @Override
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public TaskStateHolder getReaderState() {
         return readerState;
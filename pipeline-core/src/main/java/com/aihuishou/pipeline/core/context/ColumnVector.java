@@ -0,0 +1,118 @@
+package com.aihuishou.pipeline.core.context;
+
+/**
+ * 列向量（不可变），{@link ColumnarDataChunk} 的一列，按物理行号存取
+ * @author ethan zhang
+ */
+public abstract class ColumnVector {
+
+    ColumnVector() {}
+
+    /**
+     * 物理行数
+     */
+    public abstract int length();
+
+    /**
+     * 按物理行号读取，原始类型列读取时装箱
+     */
+    public abstract Object getObject(int row);
+
+    public static final class LongVector extends ColumnVector {
+
+        private final long[] values;
+
+        LongVector(long[] values) {
+            this.values = values;
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+    }
+
+    public static final class IntVector extends ColumnVector {
+
+        private final int[] values;
+
+        IntVector(int[] values) {
+            this.values = values;
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+    }
+
+    public static final class DoubleVector extends ColumnVector {
+
+        private final double[] values;
+
+        DoubleVector(double[] values) {
+            this.values = values;
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+    }
+
+    public static final class ObjectVector<V> extends ColumnVector {
+
+        private final Object[] values;
+
+        ObjectVector(Object[] values) {
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(int row) {
+            return (V) values[row];
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.aihuishou.pipeline.core.context;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 列式数据块（不可变），按列存储同一批行，适合每次只处理少数几列的宽行数据
+ * 过滤只生成新的选择向量（可见行的物理行号），不复制行；按列转换只生成被转换的列，其余列与原数据块共享；
+ * {@link #asList()} 在首次访问时按 {@link ColumnarSchema} 取回源行并写回转换过的列，结果缓存，经 {@link DataChunk#wrap(List)} 包装时直接取回原数据块
+ * 只有整段存放数据块的缓冲区（见 {@link com.aihuishou.pipeline.core.buffer.DataBuffer#isChunked()}）能让数据块原样传到下游，其余缓冲区写入时即列转行
+ * @param <T> 行类型
+ * @author ethan zhang
+ */
+public final class ColumnarDataChunk<T> extends DataChunk<T> {
+
+    private final ColumnarSchema<T> schema;
+
+    private final Map<String, ColumnVector> vectors;
+
+    private final int rowCount;
+
+    /**
+     * 选择向量，为 null 时所有物理行可见
+     */
+    private final int[] selection;
+
+    /**
+     * 行转列时的源行及列向量，按物理行号对应
+     */
+    private final List<? extends T> sourceRows;
+
+    private final Map<String, ColumnVector> sourceVectors;
+
+    private List<T> rows;
+
+    /**
+     * 行视图切片所属的数据块及起始位置，切片的行取自所属数据块，避免重复列转行
+     */
+    private ColumnarDataChunk<T> parent;
+
+    private int parentFrom;
+
+    ColumnarDataChunk(ColumnarSchema<T> schema, Map<String, ColumnVector> vectors, int rowCount, int[] selection,
+                      List<? extends T> sourceRows, Map<String, ColumnVector> sourceVectors) {
+        this.schema = schema;
+        this.vectors = vectors;
+        this.rowCount = rowCount;
+        this.selection = selection;
+        this.sourceRows = sourceRows;
+        this.sourceVectors = sourceVectors;
+    }
+
+    /**
+     * 转换为列式数据块，已是同一结构的列式数据块时直接返回
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ColumnarDataChunk<T> from(DataChunk<T> chunk, ColumnarSchema<T> schema) {
+        if (chunk instanceof ColumnarDataChunk && ((ColumnarDataChunk<T>) chunk).schema == schema) {
+            return (ColumnarDataChunk<T>) chunk;
+        }
+        return schema.toColumns(chunk.asList());
+    }
+
+    /**
+     * 合并共享列向量的多个数据块（如同一数据块的切片），只合并选择向量；列向量不同时返回 null
+     */
+    static ColumnarDataChunk<?> concatSlices(List<ColumnarDataChunk<?>> chunks) {
+        return concatSlices0(chunks);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ColumnarDataChunk<T> concatSlices0(List<ColumnarDataChunk<?>> chunks) {
+        ColumnarDataChunk<T> first = (ColumnarDataChunk<T>) chunks.get(0);
+        int total = 0;
+        for (ColumnarDataChunk<?> chunk : chunks) {
+            if (chunk.vectors != first.vectors) {
+                return null;
+            }
+            total += chunk.size();
+        }
+        int[] selection = new int[total];
+        int pos = 0;
+        for (ColumnarDataChunk<?> chunk : chunks) {
+            for (int i = 0, n = chunk.size(); i < n; i++) {
+                selection[pos++] = chunk.physical(i);
+            }
+        }
+        return new ColumnarDataChunk<>(first.schema, first.vectors, first.rowCount, selection, first.sourceRows, first.sourceVectors);
+    }
+
+    public ColumnarSchema<T> getSchema() {
+        return schema;
+    }
+
+    public long getLong(String column, int index) {
+        return vector(column, ColumnVector.LongVector.class).get(physical(index));
+    }
+
+    public int getInt(String column, int index) {
+        return vector(column, ColumnVector.IntVector.class).get(physical(index));
+    }
+
+    public double getDouble(String column, int index) {
+        return vector(column, ColumnVector.DoubleVector.class).get(physical(index));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V get(String column, int index) {
+        return (V) vector(column, ColumnVector.class).getObject(physical(index));
+    }
+
+    /**
+     * 按 long 列过滤，只生成新的选择向量
+     */
+    public ColumnarDataChunk<T> filterLong(String column, LongPredicate predicate) {
+        ColumnVector.LongVector vector = vector(column, ColumnVector.LongVector.class);
+        return select(row -> predicate.test(vector.get(row)));
+    }
+
+    public ColumnarDataChunk<T> filterInt(String column, IntPredicate predicate) {
+        ColumnVector.IntVector vector = vector(column, ColumnVector.IntVector.class);
+        return select(row -> predicate.test(vector.get(row)));
+    }
+
+    public ColumnarDataChunk<T> filterDouble(String column, DoublePredicate predicate) {
+        ColumnVector.DoubleVector vector = vector(column, ColumnVector.DoubleVector.class);
+        return select(row -> predicate.test(vector.get(row)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> ColumnarDataChunk<T> filterColumn(String column, Predicate<? super V> predicate) {
+        ColumnVector.ObjectVector<V> vector = vector(column, ColumnVector.ObjectVector.class);
+        return select(row -> predicate.test(vector.get(row)));
+    }
+
+    /**
+     * 转换 long 列，只计算可见行，生成新的列向量
+     */
+    public ColumnarDataChunk<T> mapLong(String column, LongUnaryOperator mapper) {
+        ColumnVector.LongVector vector = vector(column, ColumnVector.LongVector.class);
+        long[] values = new long[rowCount];
+        for (int i = 0, n = size(); i < n; i++) {
+            int row = physical(i);
+            values[row] = mapper.applyAsLong(vector.get(row));
+        }
+        return replace(column, new ColumnVector.LongVector(values));
+    }
+
+    public ColumnarDataChunk<T> mapInt(String column, IntUnaryOperator mapper) {
+        ColumnVector.IntVector vector = vector(column, ColumnVector.IntVector.class);
+        int[] values = new int[rowCount];
+        for (int i = 0, n = size(); i < n; i++) {
+            int row = physical(i);
+            values[row] = mapper.applyAsInt(vector.get(row));
+        }
+        return replace(column, new ColumnVector.IntVector(values));
+    }
+
+    public ColumnarDataChunk<T> mapDouble(String column, DoubleUnaryOperator mapper) {
+        ColumnVector.DoubleVector vector = vector(column, ColumnVector.DoubleVector.class);
+        double[] values = new double[rowCount];
+        for (int i = 0, n = size(); i < n; i++) {
+            int row = physical(i);
+            values[row] = mapper.applyAsDouble(vector.get(row));
+        }
+        return replace(column, new ColumnVector.DoubleVector(values));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> ColumnarDataChunk<T> mapColumn(String column, UnaryOperator<V> mapper) {
+        ColumnVector.ObjectVector<V> vector = vector(column, ColumnVector.ObjectVector.class);
+        Object[] values = new Object[rowCount];
+        for (int i = 0, n = size(); i < n; i++) {
+            int row = physical(i);
+            values[row] = mapper.apply(vector.get(row));
+        }
+        return replace(column, new ColumnVector.ObjectVector<V>(values));
+    }
+
+    /**
+     * 按可见行切分，切片共享列向量，只生成各自的选择向量
+     */
+    @Override
+    public List<DataChunk<T>> partition(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The partition size must be positive!");
+        }
+        int total = size();
+        List<DataChunk<T>> partitions = new ArrayList<>((total + size - 1) / size);
+        for (int from = 0; from < total; from += size) {
+            partitions.add(slice(from, Math.min(total, from + size)));
+        }
+        return partitions;
+    }
+
+    /**
+     * 可见行区间 [from, to) 的切片，共享列向量
+     */
+    public ColumnarDataChunk<T> slice(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of bounds for length %d!", from, to, size()));
+        }
+        int[] slice = new int[to - from];
+        for (int i = 0; i < slice.length; i++) {
+            slice[i] = selection == null ? from + i : selection[from + i];
+        }
+        return new ColumnarDataChunk<>(schema, vectors, rowCount, slice, sourceRows, sourceVectors);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean isNotEmpty() {
+        return size() != 0;
+    }
+
+    @Override
+    public List<T> asList() {
+        return new ColumnarListView();
+    }
+
+    @Override
+    public int size() {
+        return selection == null ? rowCount : selection.length;
+    }
+
+    private int physical(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d!", index, size()));
+        }
+        return selection == null ? index : selection[index];
+    }
+
+    private ColumnarDataChunk<T> select(IntPredicate predicate) {
+        int n = size();
+        int[] selected = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int row = selection == null ? i : selection[i];
+            if (predicate.test(row)) {
+                selected[count++] = row;
+            }
+        }
+        if (count == n) {
+            return this;
+        }
+        int[] result = new int[count];
+        System.arraycopy(selected, 0, result, 0, count);
+        return new ColumnarDataChunk<>(schema, vectors, rowCount, result, sourceRows, sourceVectors);
+    }
+
+    private ColumnarDataChunk<T> replace(String column, ColumnVector vector) {
+        Map<String, ColumnVector> replaced = new LinkedHashMap<>(vectors);
+        replaced.put(column, vector);
+        return new ColumnarDataChunk<>(schema, replaced, rowCount, selection, sourceRows, sourceVectors);
+    }
+
+    private <V extends ColumnVector> V vector(String column, Class<V> type) {
+        ColumnVector vector = vectors.get(column);
+        if (vector == null) {
+            throw new IllegalArgumentException(String.format("Column [%s] not exists!", column));
+        }
+        if (!type.isInstance(vector)) {
+            throw new IllegalArgumentException(String.format("Column [%s] is not a %s!", column, type.getSimpleName()));
+        }
+        return type.cast(vector);
+    }
+
+    /**
+     * 列转行（取回源行），结果缓存
+     */
+    private synchronized List<T> rows() {
+        if (rows == null && parent != null) {
+            rows = parent.rows().subList(parentFrom, parentFrom + size());
+        } else if (rows == null) {
+            int n = size();
+            List<T> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(schema.toRow(vectors, physical(i), sourceRows, sourceVectors));
+            }
+            rows = Collections.unmodifiableList(list);
+        }
+        return rows;
+    }
+
+    /**
+     * 行视图，首次读取时才列转行
+     */
+    private final class ColumnarListView extends AbstractList<T> implements RandomAccess, ChunkView {
+
+        @Override
+        public T get(int index) {
+            return rows().get(index);
+        }
+
+        @Override
+        public int size() {
+            return ColumnarDataChunk.this.size();
+        }
+
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            ColumnarDataChunk<T> slice = slice(fromIndex, toIndex);
+            slice.parent = ColumnarDataChunk.this;
+            slice.parentFrom = fromIndex;
+            return slice.asList();
+        }
+
+        @Override
+        public DataChunk<?> chunk() {
+            return ColumnarDataChunk.this;
+        }
+
+    }
+
+}
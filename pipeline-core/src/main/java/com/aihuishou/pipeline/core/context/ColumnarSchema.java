@@ -0,0 +1,149 @@
+package com.aihuishou.pipeline.core.context;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 列式数据块的结构，定义行对象与各列之间的转换
+ * 行转列时按列读取字段，数据块同时保留源行；列转行时直接取回源行，只把按列转换过的列写回源行，其余字段（包括未声明为列的字段）原样保留，不复制行；
+ * 写回会修改源行，同一批源行转换出的多个数据块只应有一个列转行（处理链中上游数据块在下游列转行后不再使用）；
+ * long、int、double 列不接受 null，可为 null 的字段使用 {@link Builder#column(String, Function, BiConsumer)}
+ * @param <T> 行类型
+ * @author ethan zhang
+ */
+public final class ColumnarSchema<T> {
+
+    private final Map<String, Column<T>> columns;
+
+    private ColumnarSchema(Map<String, Column<T>> columns) {
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    public static <T> Builder<T> builder(Class<T> rowType) {
+        return new Builder<>();
+    }
+
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    /**
+     * 行转列，数据块持有 rows 作为源行
+     */
+    public ColumnarDataChunk<T> toColumns(List<? extends T> rows) {
+        Map<String, ColumnVector> vectors = new LinkedHashMap<>();
+        columns.forEach((name, column) -> vectors.put(name, column.extractor.apply(rows)));
+        return new ColumnarDataChunk<>(this, vectors, rows.size(), null, rows, vectors);
+    }
+
+    /**
+     * 按物理行号列转行，取回源行，与行转列时不同的列（即按列转换过的列）写回源行
+     */
+    T toRow(Map<String, ColumnVector> vectors, int row, List<? extends T> sourceRows, Map<String, ColumnVector> sourceVectors) {
+        T t = sourceRows.get(row);
+        if (vectors != sourceVectors) {
+            columns.forEach((name, column) -> {
+                ColumnVector vector = vectors.get(name);
+                if (vector != sourceVectors.get(name)) {
+                    column.setter.set(t, vector, row);
+                }
+            });
+        }
+        return t;
+    }
+
+    private static class Column<T> {
+
+        private final Function<List<? extends T>, ColumnVector> extractor;
+
+        private final Setter<T> setter;
+
+        private Column(Function<List<? extends T>, ColumnVector> extractor, Setter<T> setter) {
+            this.extractor = extractor;
+            this.setter = setter;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Setter<T> {
+
+        void set(T row, ColumnVector vector, int index);
+
+    }
+
+    public static class Builder<T> {
+
+        private final Map<String, Column<T>> columns = new LinkedHashMap<>();
+
+        private Builder() {}
+
+        public Builder<T> longColumn(String name, ToLongFunction<? super T> getter, ObjLongConsumer<? super T> setter) {
+            return add(name, rows -> {
+                long[] values = new long[rows.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getter.applyAsLong(rows.get(i));
+                }
+                return new ColumnVector.LongVector(values);
+            }, (row, vector, index) -> setter.accept(row, ((ColumnVector.LongVector) vector).get(index)));
+        }
+
+        public Builder<T> intColumn(String name, ToIntFunction<? super T> getter, ObjIntConsumer<? super T> setter) {
+            return add(name, rows -> {
+                int[] values = new int[rows.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getter.applyAsInt(rows.get(i));
+                }
+                return new ColumnVector.IntVector(values);
+            }, (row, vector, index) -> setter.accept(row, ((ColumnVector.IntVector) vector).get(index)));
+        }
+
+        public Builder<T> doubleColumn(String name, ToDoubleFunction<? super T> getter, ObjDoubleConsumer<? super T> setter) {
+            return add(name, rows -> {
+                double[] values = new double[rows.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getter.applyAsDouble(rows.get(i));
+                }
+                return new ColumnVector.DoubleVector(values);
+            }, (row, vector, index) -> setter.accept(row, ((ColumnVector.DoubleVector) vector).get(index)));
+        }
+
+        @SuppressWarnings("unchecked")
+        public <V> Builder<T> column(String name, Function<? super T, ? extends V> getter, BiConsumer<? super T, ? super V> setter) {
+            return add(name, rows -> {
+                Object[] values = new Object[rows.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getter.apply(rows.get(i));
+                }
+                return new ColumnVector.ObjectVector<V>(values);
+            }, (row, vector, index) -> setter.accept(row, ((ColumnVector.ObjectVector<V>) vector).get(index)));
+        }
+
+        public ColumnarSchema<T> build() {
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("The columnar schema must have at least one column!");
+            }
+            return new ColumnarSchema<>(new LinkedHashMap<>(columns));
+        }
+
+        private Builder<T> add(String name, Function<List<? extends T>, ColumnVector> extractor, Setter<T> setter) {
+            if (columns.putIfAbsent(name, new Column<>(extractor, setter)) != null) {
+                throw new IllegalArgumentException(String.format("Duplicate column [%s]!", name));
+            }
+            return this;
+        }
+
+    }
+
+}
@@ -1,139 +1,286 @@
 package com.aihuishou.pipeline.core.context;
 
-import com.google.common.collect.Lists;
-import org.apache.commons.collections4.CollectionUtils;
-
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
- * 数据块
+ * 数据块（不可变）
+ * {@link #wrap(List)} 直接持有传入的集合，{@link #asList()} 返回只读视图，{@link #partition(int)} 返回原数据块的切片，均不复制数据；
+ * {@link #map(Function)} 及 {@link #filter(Predicate)} 延迟执行，连续的转换在首次访问数据时合并为一次遍历；
+ * 只含 long、int 的数据见 {@link LongDataChunk}、{@link IntDataChunk}
  * @param <T> 数据类型
  * @author ethan zhang
  */
 public abstract class DataChunk<T> implements Iterable<T> {
 
-    private DataChunk() {}
+    DataChunk() {}
 
+    /**
+     * 按 size 切分为多个数据块，切片为原数据的视图
+     */
     public List<DataChunk<T>> partition(int size) {
-        return Lists.partition(toList(), size).stream().map(DataChunk::of).collect(Collectors.toList());
+        if (size <= 0) {
+            throw new IllegalArgumentException("The partition size must be positive!");
+        }
+        List<T> list = asList();
+        int total = list.size();
+        List<DataChunk<T>> partitions = new ArrayList<>((total + size - 1) / size);
+        for (int from = 0; from < total; from += size) {
+            partitions.add(new ListDataChunk<>(list.subList(from, Math.min(total, from + size))));
+        }
+        return partitions;
+    }
+
+    /**
+     * 延迟转换，首次访问数据时才执行
+     */
+    public <V> DataChunk<V> map(Function<? super T, ? extends V> mapper) {
+        return new LazyDataChunk<T, V>(asList(), (t, sink) -> sink.accept(mapper.apply(t)));
     }
 
-    public <V> DataChunk<V> map(Function<T, V> mapper) {
-        return DataChunk.of(stream().map(mapper).collect(Collectors.toList()));
+    /**
+     * 延迟过滤，首次访问数据时才执行
+     */
+    public DataChunk<T> filter(Predicate<? super T> predicate) {
+        return new LazyDataChunk<T, T>(asList(), (t, sink) -> {
+            if (predicate.test(t)) {
+                sink.accept(t);
+            }
+        });
     }
 
     public abstract boolean isEmpty();
 
     public abstract boolean isNotEmpty();
 
-    public abstract List<T> toList();
+    /**
+     * 只读视图，不复制数据
+     */
+    public abstract List<T> asList();
 
-    public abstract Set<T> toSet();
+    /**
+     * 复制为新的可修改集合
+     */
+    public List<T> toList() {
+        return new ArrayList<>(asList());
+    }
+
+    public Set<T> toSet() {
+        return new HashSet<>(asList());
+    }
 
     public abstract int size();
 
-    public abstract Stream<T> stream();
+    public Stream<T> stream() {
+        return asList().stream();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return asList().iterator();
+    }
 
     @SuppressWarnings("unchecked")
     public static <T> DataChunk<T> empty() {
         return (EmptyDataChunk<T>) EmptyDataChunk.INSTANCE;
     }
 
+    /**
+     * 复制传入的集合
+     */
     public static <T> DataChunk<T> of(Collection<? extends T> data) {
-        return new ArrayListDataChunk<>(data);
+        return data == null || data.isEmpty() ? empty() : new ListDataChunk<>(new ArrayList<>(data));
     }
 
-    private static class ArrayListDataChunk<T> extends DataChunk<T> {
+    /**
+     * 直接持有传入的集合，不复制，调用方之后不能再修改该集合
+     * 传入的是 {@link LongDataChunk}、{@link IntDataChunk}、{@link ColumnarDataChunk} 的视图时直接取回原数据块
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DataChunk<T> wrap(List<T> data) {
+        if (data == null || data.isEmpty()) {
+            return empty();
+        }
+        if (data instanceof ChunkView) {
+            return (DataChunk<T>) ((ChunkView) data).chunk();
+        }
+        return new ListDataChunk<>(data);
+    }
 
-        private List<T> data;
+    /**
+     * 传入的集合是数据块的只读视图（{@link #asList()} 的返回值或其切片）时返回该数据块，否则返回 null
+     * 持有视图的一方无需复制，数据不会再被修改
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DataChunk<T> viewOf(Collection<T> data) {
+        return data instanceof ChunkView ? (DataChunk<T>) ((ChunkView) data).chunk() : null;
+    }
 
-        private ArrayListDataChunk(Collection<? extends T> data) {
-            ArrayListDataChunk.this.data = new ArrayList<>(data);
+    /**
+     * 按顺序合并多个集合，只有一个时直接持有；均为 {@link LongDataChunk} 的视图时合并为 long 数据块，不装箱；
+     * 均为共享列向量的 {@link ColumnarDataChunk} 的视图时只合并选择向量，不列转行
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> DataChunk<T> concat(List<? extends List<T>> parts) {
+        if (parts.size() == 1) {
+            return wrap(parts.get(0));
+        }
+        if (!parts.isEmpty() && parts.stream().allMatch(part -> part instanceof LongDataChunk.LongListView)) {
+            return (DataChunk<T>) LongDataChunk.concatViews((List) parts);
+        }
+        if (!parts.isEmpty() && parts.stream().allMatch(part -> viewOf(part) instanceof ColumnarDataChunk)) {
+            List<ColumnarDataChunk<?>> chunks = new ArrayList<>(parts.size());
+            parts.forEach(part -> chunks.add((ColumnarDataChunk<?>) viewOf(part)));
+            ColumnarDataChunk<?> merged = ColumnarDataChunk.concatSlices(chunks);
+            if (merged != null) {
+                return (DataChunk<T>) merged;
+            }
+        }
+        List<T> list = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(list::addAll);
+        return wrap(list);
+    }
+
+    /**
+     * 数据块的集合视图，可取回原数据块
+     */
+    interface ChunkView {
+
+        DataChunk<?> chunk();
+
+    }
+
+    private static class ListDataChunk<T> extends DataChunk<T> {
+
+        private final List<T> data;
+
+        private final ListView<T> view;
+
+        private ListDataChunk(List<T> data) {
+            this.data = data;
+            this.view = new ListView<>(this);
         }
 
         @Override
         public boolean isEmpty() {
-            return CollectionUtils.isEmpty(data);
+            return data.isEmpty();
         }
 
         @Override
         public boolean isNotEmpty() {
-            return CollectionUtils.isNotEmpty(data);
+            return !data.isEmpty();
         }
 
         @Override
-        public List<T> toList() {
-            return new ArrayList<>(data);
+        public List<T> asList() {
+            return view;
         }
 
         @Override
-        public Set<T> toSet() {
-            return new HashSet<>(data);
+        public int size() {
+            return data.size();
+        }
+
+    }
+
+    /**
+     * 只读视图，切片仍为视图
+     */
+    private static class ListView<T> extends AbstractList<T> implements RandomAccess, ChunkView {
+
+        private final ListDataChunk<T> chunk;
+
+        private ListView(ListDataChunk<T> chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public T get(int index) {
+            return chunk.data.get(index);
         }
 
         @Override
         public int size() {
-            return data.size();
+            return chunk.data.size();
         }
 
         @Override
-        public Stream<T> stream() {
-            return data.stream();
+        public List<T> subList(int fromIndex, int toIndex) {
+            return new ListDataChunk<>(chunk.data.subList(fromIndex, toIndex)).asList();
         }
 
-        @SuppressWarnings("all")
         @Override
-        public Iterator<T> iterator() {
-            return data.iterator();
+        public DataChunk<?> chunk() {
+            return chunk;
         }
 
     }
 
-    private static class HashSetDataChunk<T> extends DataChunk<T> {
+    /**
+     * 延迟转换的数据块，持有源数据及合并后的转换，首次访问时遍历一次源数据得到结果
+     */
+    private static class LazyDataChunk<S, T> extends DataChunk<T> {
 
-        private Set<T> data;
+        private final List<S> source;
 
-        private HashSetDataChunk(Collection<T> data) {
-            HashSetDataChunk.this.data = new HashSet<>(data);
-        }
+        private final BiConsumer<S, Consumer<T>> transform;
 
-        @Override
-        public boolean isEmpty() {
-            return CollectionUtils.isEmpty(data);
+        private List<T> data;
+
+        private LazyDataChunk(List<S> source, BiConsumer<S, Consumer<T>> transform) {
+            this.source = source;
+            this.transform = transform;
         }
 
         @Override
-        public boolean isNotEmpty() {
-            return CollectionUtils.isNotEmpty(data);
+        public synchronized <V> DataChunk<V> map(Function<? super T, ? extends V> mapper) {
+            if (data != null) {
+                return super.map(mapper);
+            }
+            return new LazyDataChunk<S, V>(source, (s, sink) -> transform.accept(s, t -> sink.accept(mapper.apply(t))));
         }
 
         @Override
-        public List<T> toList() {
-            return new ArrayList<>(data);
+        public synchronized DataChunk<T> filter(Predicate<? super T> predicate) {
+            if (data != null) {
+                return super.filter(predicate);
+            }
+            return new LazyDataChunk<S, T>(source, (s, sink) -> transform.accept(s, t -> {
+                if (predicate.test(t)) {
+                    sink.accept(t);
+                }
+            }));
         }
 
         @Override
-        public Set<T> toSet() {
-            return new HashSet<>(data);
+        public boolean isEmpty() {
+            return asList().isEmpty();
         }
 
         @Override
-        public int size() {
-            return data.size();
+        public boolean isNotEmpty() {
+            return !asList().isEmpty();
         }
 
         @Override
-        public Stream<T> stream() {
-            return data.stream();
+        public synchronized List<T> asList() {
+            if (data == null) {
+                List<T> result = new ArrayList<>(source.size());
+                for (S s : source) {
+                    transform.accept(s, result::add);
+                }
+                data = new ListDataChunk<>(result).asList();
+            }
+            return data;
         }
 
-        @SuppressWarnings("all")
         @Override
-        public Iterator<T> iterator() {
-            return data.iterator();
+        public int size() {
+            return asList().size();
         }
 
     }
@@ -145,6 +292,21 @@ public abstract class DataChunk<T> implements Iterable<T> {
 
         private EmptyDataChunk() {}
 
+        @Override
+        public <V> DataChunk<V> map(Function<? super T, ? extends V> mapper) {
+            return empty();
+        }
+
+        @Override
+        public DataChunk<T> filter(Predicate<? super T> predicate) {
+            return this;
+        }
+
+        @Override
+        public List<DataChunk<T>> partition(int size) {
+            return Collections.emptyList();
+        }
+
         @Override
         public boolean isEmpty() {
             return true;
@@ -156,13 +318,13 @@ public abstract class DataChunk<T> implements Iterable<T> {
         }
 
         @Override
-        public List<T> toList() {
+        public List<T> asList() {
             return Collections.emptyList();
         }
 
         @Override
         public Set<T> toSet() {
-            return Collections.emptySet();
+            return new HashSet<>();
         }
 
         @Override
@@ -175,7 +337,6 @@ public abstract class DataChunk<T> implements Iterable<T> {
             return Stream.empty();
         }
 
-        @SuppressWarnings("all")
         @Override
         public Iterator<T> iterator() {
             return Collections.emptyIterator();
@@ -0,0 +1,215 @@
+package com.aihuishou.pipeline.core.context;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * int 数据块（不可变，基于 int 数组）
+ * 每个元素只占 4 字节，{@link #asList()} 返回按需装箱的只读视图，经 {@link DataChunk#wrap(List)} 包装时直接取回原数据块，不装箱
+ * @author ethan zhang
+ */
+public final class IntDataChunk extends DataChunk<Integer> {
+
+    private static final int[] EMPTY_ARRAY = new int[0];
+
+    private final int[] data;
+
+    private final int offset;
+
+    private final int length;
+
+    private IntListView view;
+
+    private IntDataChunk(int[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 复制传入的数组
+     */
+    public static IntDataChunk of(int... data) {
+        return wrap(data.clone(), 0, data.length);
+    }
+
+    /**
+     * 直接持有传入的数组区间 [from, to)，不复制，调用方之后不能再修改该区间
+     */
+    public static IntDataChunk wrap(int[] data, int from, int to) {
+        if (from < 0 || to > data.length || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of bounds for length %d!", from, to, data.length));
+        }
+        return new IntDataChunk(data, from, to - from);
+    }
+
+    /**
+     * 区间 [from, to) 内的连续整数
+     */
+    public static IntDataChunk range(int from, int to) {
+        return wrap(IntStream.range(from, to).toArray(), 0, Math.max(0, to - from));
+    }
+
+    /**
+     * 转换为 int 数据块，已是 int 数据块时直接返回
+     */
+    public static IntDataChunk from(DataChunk<Integer> chunk) {
+        if (chunk instanceof IntDataChunk) {
+            return (IntDataChunk) chunk;
+        }
+        int[] array = new int[chunk.size()];
+        int i = 0;
+        for (Integer value : chunk.asList()) {
+            array[i++] = value;
+        }
+        return new IntDataChunk(array, 0, array.length);
+    }
+
+    /**
+     * 传入的集合为 int 数据块的视图时返回该数据块，否则返回 null
+     */
+    public static IntDataChunk unwrap(Collection<?> data) {
+        return data instanceof IntListView ? ((IntListView) data).chunk() : null;
+    }
+
+    public int getInt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d!", index, length));
+        }
+        return data[offset + index];
+    }
+
+    /**
+     * 复制到目标数组的 destPos 位置，返回复制的数量
+     */
+    public int copyTo(int[] dest, int destPos) {
+        System.arraycopy(data, offset, dest, destPos, length);
+        return length;
+    }
+
+    public int[] toIntArray() {
+        return length == 0 ? EMPTY_ARRAY : Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    public void forEachInt(IntConsumer action) {
+        for (int i = offset; i < offset + length; i++) {
+            action.accept(data[i]);
+        }
+    }
+
+    public IntStream intStream() {
+        return Arrays.stream(data, offset, offset + length);
+    }
+
+    /**
+     * 立即转换，不装箱
+     */
+    public IntDataChunk mapInts(IntUnaryOperator mapper) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = mapper.applyAsInt(data[offset + i]);
+        }
+        return new IntDataChunk(array, 0, length);
+    }
+
+    /**
+     * 立即过滤，不装箱
+     */
+    public IntDataChunk filterInts(IntPredicate predicate) {
+        int[] array = new int[length];
+        int n = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (predicate.test(data[i])) {
+                array[n++] = data[i];
+            }
+        }
+        return new IntDataChunk(array, 0, n);
+    }
+
+    /**
+     * 切片为原数组的区间，不复制
+     */
+    public IntDataChunk slice(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of bounds for length %d!", from, to, length));
+        }
+        return new IntDataChunk(data, offset + from, to - from);
+    }
+
+    @Override
+    public List<DataChunk<Integer>> partition(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The partition size must be positive!");
+        }
+        List<DataChunk<Integer>> partitions = new ArrayList<>((length + size - 1) / size);
+        for (int from = 0; from < length; from += size) {
+            partitions.add(slice(from, Math.min(length, from + size)));
+        }
+        return partitions;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    @Override
+    public boolean isNotEmpty() {
+        return length != 0;
+    }
+
+    @Override
+    public List<Integer> asList() {
+        if (view == null) {
+            view = new IntListView(this);
+        }
+        return view;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    /**
+     * 只读视图，读取时装箱
+     */
+    static final class IntListView extends AbstractList<Integer> implements RandomAccess, ChunkView {
+
+        private final IntDataChunk chunk;
+
+        private IntListView(IntDataChunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public IntDataChunk chunk() {
+            return chunk;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return chunk.getInt(index);
+        }
+
+        @Override
+        public int size() {
+            return chunk.length;
+        }
+
+        @Override
+        public List<Integer> subList(int fromIndex, int toIndex) {
+            return chunk.slice(fromIndex, toIndex).asList();
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.aihuishou.pipeline.core.context;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+
+/**
+ * long 数据块（不可变，基于 long 数组）
+ * 每个元素只占 8 字节，{@link #asList()} 返回按需装箱的只读视图；该视图经 {@link DataChunk#wrap(List)} 包装时直接取回原数据块，不复制，
+ * 写入 {@link com.aihuishou.pipeline.core.buffer.LongDataBuffer} 时直接复制数组，均不装箱
+ * @author ethan zhang
+ */
+public final class LongDataChunk extends DataChunk<Long> {
+
+    private static final long[] EMPTY_ARRAY = new long[0];
+
+    private final long[] data;
+
+    private final int offset;
+
+    private final int length;
+
+    private LongListView view;
+
+    private LongDataChunk(long[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 复制传入的数组
+     */
+    public static LongDataChunk of(long... data) {
+        return wrap(data.clone(), 0, data.length);
+    }
+
+    /**
+     * 直接持有传入的数组区间 [from, to)，不复制，调用方之后不能再修改该区间
+     */
+    public static LongDataChunk wrap(long[] data, int from, int to) {
+        if (from < 0 || to > data.length || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of bounds for length %d!", from, to, data.length));
+        }
+        return new LongDataChunk(data, from, to - from);
+    }
+
+    /**
+     * 区间 [from, to) 内的连续整数
+     */
+    public static LongDataChunk range(long from, long to) {
+        return wrap(LongStream.range(from, to).toArray(), 0, (int) Math.max(0L, to - from));
+    }
+
+    /**
+     * 转换为 long 数据块，已是 long 数据块时直接返回
+     */
+    public static LongDataChunk from(DataChunk<Long> chunk) {
+        if (chunk instanceof LongDataChunk) {
+            return (LongDataChunk) chunk;
+        }
+        long[] array = new long[chunk.size()];
+        int i = 0;
+        for (Long value : chunk.asList()) {
+            array[i++] = value;
+        }
+        return new LongDataChunk(array, 0, array.length);
+    }
+
+    /**
+     * 传入的集合为 long 数据块的视图时返回该数据块，否则返回 null
+     */
+    public static LongDataChunk unwrap(Collection<?> data) {
+        return data instanceof LongListView ? ((LongListView) data).chunk() : null;
+    }
+
+    /**
+     * 按顺序合并多个 long 数据块的视图
+     */
+    static LongDataChunk concatViews(List<LongListView> parts) {
+        long[] array = new long[parts.stream().mapToInt(List::size).sum()];
+        int pos = 0;
+        for (LongListView part : parts) {
+            pos += part.chunk().copyTo(array, pos);
+        }
+        return new LongDataChunk(array, 0, array.length);
+    }
+
+    public long getLong(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d!", index, length));
+        }
+        return data[offset + index];
+    }
+
+    /**
+     * 复制到目标数组的 destPos 位置，返回复制的数量
+     */
+    public int copyTo(long[] dest, int destPos) {
+        System.arraycopy(data, offset, dest, destPos, length);
+        return length;
+    }
+
+    public long[] toLongArray() {
+        return length == 0 ? EMPTY_ARRAY : Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    public void forEachLong(LongConsumer action) {
+        for (int i = offset; i < offset + length; i++) {
+            action.accept(data[i]);
+        }
+    }
+
+    public LongStream longStream() {
+        return Arrays.stream(data, offset, offset + length);
+    }
+
+    /**
+     * 立即转换，不装箱
+     */
+    public LongDataChunk mapLongs(LongUnaryOperator mapper) {
+        long[] array = new long[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = mapper.applyAsLong(data[offset + i]);
+        }
+        return new LongDataChunk(array, 0, length);
+    }
+
+    /**
+     * 立即过滤，不装箱
+     */
+    public LongDataChunk filterLongs(LongPredicate predicate) {
+        long[] array = new long[length];
+        int n = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (predicate.test(data[i])) {
+                array[n++] = data[i];
+            }
+        }
+        return new LongDataChunk(array, 0, n);
+    }
+
+    /**
+     * 切片为原数组的区间，不复制
+     */
+    public LongDataChunk slice(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) out of bounds for length %d!", from, to, length));
+        }
+        return new LongDataChunk(data, offset + from, to - from);
+    }
+
+    @Override
+    public List<DataChunk<Long>> partition(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The partition size must be positive!");
+        }
+        List<DataChunk<Long>> partitions = new ArrayList<>((length + size - 1) / size);
+        for (int from = 0; from < length; from += size) {
+            partitions.add(slice(from, Math.min(length, from + size)));
+        }
+        return partitions;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    @Override
+    public boolean isNotEmpty() {
+        return length != 0;
+    }
+
+    @Override
+    public List<Long> asList() {
+        if (view == null) {
+            view = new LongListView(this);
+        }
+        return view;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    /**
+     * 只读视图，读取时装箱
+     */
+    static final class LongListView extends AbstractList<Long> implements RandomAccess, ChunkView {
+
+        private final LongDataChunk chunk;
+
+        private LongListView(LongDataChunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public LongDataChunk chunk() {
+            return chunk;
+        }
+
+        @Override
+        public Long get(int index) {
+            return chunk.getLong(index);
+        }
+
+        @Override
+        public int size() {
+            return chunk.length;
+        }
+
+        @Override
+        public List<Long> subList(int fromIndex, int toIndex) {
+            return chunk.slice(fromIndex, toIndex).asList();
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package com.aihuishou.pipeline.core.context;
 import com.aihuishou.pipeline.core.buffer.DataBuffer;
 import com.aihuishou.pipeline.core.common.Counter;
 import com.aihuishou.pipeline.core.common.Holder;
+import com.aihuishou.pipeline.core.event.TaskWarnningAggregator;
+import com.aihuishou.pipeline.core.metrics.TaskMetrics;
 import com.aihuishou.pipeline.core.task.PipeTask;
 
 import java.time.Duration;
@@ -30,6 +32,21 @@ public interface TaskContext<I, O> {
 
     Counter getWriterCounter();
 
+    /**
+     * 因分发队列溢出而被丢弃的事件数
+     */
+    Counter getDroppedEventCounter();
+
+    /**
+     * 警告聚合器
+     */
+    TaskWarnningAggregator getWarnningAggregator();
+
+    /**
+     * 各阶段运行指标
+     */
+    TaskMetrics getMetrics();
+
     TaskStateHolder getReaderState();
 
     TaskStateHolder getProcessorState();
@@ -63,7 +80,7 @@ public interface TaskContext<I, O> {
         if (!getStartTime().isPresent()) {
             return false;
         }
-        if (!getFinishTime().isPresent()) {
+        if (getFinishTime().isPresent()) {
             return false;
         }
         return Duration.between(getStartTime().get(), Instant.now()).compareTo(getTimeout().get()) > 0;
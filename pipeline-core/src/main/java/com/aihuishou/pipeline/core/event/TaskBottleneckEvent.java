@@ -0,0 +1,38 @@
+package com.aihuishou.pipeline.core.event;
+
+import com.aihuishou.pipeline.core.metrics.BottleneckReport;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 任务瓶颈事件，定期发布各阶段的瓶颈报告
+ * @author ethan zhang
+ */
+@Getter
+public class TaskBottleneckEvent extends TaskLifecycleEvent {
+
+    private final BottleneckReport report;
+
+    public TaskBottleneckEvent(PipeTask<?, ?> task, BottleneckReport report) {
+        super(task);
+        this.report = report;
+    }
+
+    @Override
+    public boolean isDroppable() {
+        return true;
+    }
+
+    @Override
+    public Object getCoalesceKey() {
+        return Arrays.asList(task.getTaskId(), TaskBottleneckEvent.class);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskBottleneckEvent occured, taskId: %s, timestamp: %s, %s", task.getTaskId(), timestamp, report);
+    }
+
+}
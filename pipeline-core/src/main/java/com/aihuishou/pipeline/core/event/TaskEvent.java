@@ -13,4 +13,18 @@ public abstract class TaskEvent {
 
     protected final Instant timestamp = Instant.now();
 
+    /**
+     * 分发队列溢出时是否可以丢弃
+     */
+    public boolean isDroppable() {
+        return false;
+    }
+
+    /**
+     * 合并键，溢出时合并键相同的可丢弃事件只保留一个，返回 null 表示不合并
+     */
+    public Object getCoalesceKey() {
+        return null;
+    }
+
 }
@@ -0,0 +1,53 @@
+package com.aihuishou.pipeline.core.event;
+
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.Getter;
+
+/**
+ * 任务伸缩事件，processor 阶段工作线程数自动伸缩时发布
+ * @author ethan zhang
+ */
+@Getter
+public class TaskScaledEvent extends TaskLifecycleEvent {
+
+    /**
+     * 阶段名称，即阶段首节点的指标名称
+     */
+    private final String stage;
+
+    private final int from;
+
+    private final int to;
+
+    /**
+     * 伸缩时输入缓冲区占用率
+     */
+    private final double fillRatio;
+
+    /**
+     * 伸缩时写出阻塞时间占比
+     */
+    private final double blockedRatio;
+
+    /**
+     * 伸缩时等待输入的空闲时间占比
+     */
+    private final double idleRatio;
+
+    public TaskScaledEvent(PipeTask<?, ?> task, String stage, int from, int to, double fillRatio, double blockedRatio, double idleRatio) {
+        super(task);
+        this.stage = stage;
+        this.from = from;
+        this.to = to;
+        this.fillRatio = fillRatio;
+        this.blockedRatio = blockedRatio;
+        this.idleRatio = idleRatio;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskScaledEvent occured, taskId: %s, timestamp: %s, stage: %s, workers: %d -> %d, fill: %.1f%%, blocked: %.1f%%, idle: %.1f%%",
+                task.getTaskId(), timestamp, stage, from, to, fillRatio * 100, blockedRatio * 100, idleRatio * 100);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.aihuishou.pipeline.core.event;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import com.aihuishou.pipeline.core.task.PipeTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 任务警告聚合器
+ * 按（原因，异常类型）计数并保留前若干个样例，只有样例和按采样率命中的警告才会发布原始警告事件，
+ * 其余警告通过 {@link TaskWarnningSummaryEvent} 汇报：任务调度器按 summaryInterval 定期调用 {@link #summarize} 发布中间汇总，
+ * 任务结束时 {@link #flush} 发布最终汇总，警告占用的内存与警告数量无关
+ * @author ethan zhang
+ */
+public class TaskWarnningAggregator {
+
+    private final ConcurrentMap<List<Object>, Stat> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 警告总数，用于判断上次汇总后是否有新的警告
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong summarized = new AtomicLong();
+
+    private final AtomicBoolean flushed = new AtomicBoolean();
+
+    /**
+     * 记录一次警告
+     */
+    public void warn(PipeTask<?, ?> task, TaskWarnningEvent.Cause cause, Throwable throwable) {
+        Class<? extends Throwable> throwableType = throwable == null ? null : throwable.getClass();
+        Stat stat = stats.computeIfAbsent(Arrays.asList(cause, throwableType), key -> new Stat(cause, throwableType));
+        long n = stat.count.incrementAndGet();
+        total.incrementAndGet();
+        int exemplarSize = stat.exemplars.length();
+        if (n <= exemplarSize) {
+            stat.exemplars.set((int) n - 1, throwable);
+        }
+        long sampleRate = GlobalConfig.WARNNING.getSampleRate();
+        if (n <= exemplarSize || (sampleRate > 0 && n % sampleRate == 0)) {
+            task.getDispatcher().dispatch(new TaskWarnningEvent(task, cause, throwable));
+        }
+    }
+
+    /**
+     * 发布中间汇总，上次汇总后没有新的警告或已发布最终汇总时不发布
+     */
+    public void summarize(PipeTask<?, ?> task) {
+        long current = total.get();
+        long previous = summarized.get();
+        if (!flushed.get() && current > previous && summarized.compareAndSet(previous, current)) {
+            task.getDispatcher().dispatch(new TaskWarnningSummaryEvent(task, snapshot(), false));
+        }
+    }
+
+    /**
+     * 任务结束时发布最终汇总（只发布一次），没有警告时不发布
+     */
+    public void flush(PipeTask<?, ?> task) {
+        if (total.get() > 0 && flushed.compareAndSet(false, true)) {
+            task.getDispatcher().dispatch(new TaskWarnningSummaryEvent(task, snapshot(), true));
+        }
+    }
+
+    /**
+     * 警告总数
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * 当前的汇总快照
+     */
+    public List<TaskWarnningSummaryEvent.Entry> snapshot() {
+        List<TaskWarnningSummaryEvent.Entry> entries = new ArrayList<>(stats.size());
+        for (Stat stat : stats.values()) {
+            List<Throwable> exemplars = new ArrayList<>(stat.exemplars.length());
+            for (int i = 0; i < stat.exemplars.length(); i++) {
+                Throwable exemplar = stat.exemplars.get(i);
+                if (exemplar != null) {
+                    exemplars.add(exemplar);
+                }
+            }
+            entries.add(new TaskWarnningSummaryEvent.Entry(stat.cause, stat.throwableType, stat.count.get(), exemplars));
+        }
+        return entries;
+    }
+
+    private static class Stat {
+
+        private final TaskWarnningEvent.Cause cause;
+
+        private final Class<? extends Throwable> throwableType;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicReferenceArray<Throwable> exemplars = new AtomicReferenceArray<>(GlobalConfig.WARNNING.getExemplarSize());
+
+        private Stat(TaskWarnningEvent.Cause cause, Class<? extends Throwable> throwableType) {
+            this.cause = cause;
+            this.throwableType = throwableType;
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package com.aihuishou.pipeline.core.event;
 import lombok.Getter;
 import com.aihuishou.pipeline.core.task.PipeTask;
 
+import java.util.Arrays;
+
 /**
  * 任务警告事件
  * @author ethan zhang
@@ -20,6 +22,19 @@ public class TaskWarnningEvent extends TaskLifecycleEvent {
         this.throwable = throwable;
     }
 
+    @Override
+    public boolean isDroppable() {
+        return true;
+    }
+
+    /**
+     * 同一任务、同一原因、同一异常类型的警告视为同类
+     */
+    @Override
+    public Object getCoalesceKey() {
+        return Arrays.asList(task.getTaskId(), cause, throwable == null ? null : throwable.getClass());
+    }
+
     public enum Cause {
 
         READER_FAILED,
@@ -0,0 +1,78 @@
+package com.aihuishou.pipeline.core.event;
+
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 任务警告汇总事件，按（原因，异常类型）汇总截至目前的警告数量及前若干个样例
+ * @author ethan zhang
+ */
+@Getter
+public class TaskWarnningSummaryEvent extends TaskLifecycleEvent {
+
+    private final List<Entry> entries;
+
+    /**
+     * 是否为任务结束时的最终汇总
+     */
+    private final boolean last;
+
+    public TaskWarnningSummaryEvent(PipeTask<?, ?> task, List<Entry> entries, boolean last) {
+        super(task);
+        this.entries = entries;
+        this.last = last;
+    }
+
+    public long getTotal() {
+        return entries.stream().mapToLong(Entry::getCount).sum();
+    }
+
+    /**
+     * 中间汇总可以丢弃，最终汇总必须送达
+     */
+    @Override
+    public boolean isDroppable() {
+        return !last;
+    }
+
+    @Override
+    public Object getCoalesceKey() {
+        return Arrays.asList(task.getTaskId(), TaskWarnningSummaryEvent.class);
+    }
+
+    @Getter
+    public static class Entry {
+
+        private final TaskWarnningEvent.Cause cause;
+
+        private final Class<? extends Throwable> throwableType;
+
+        private final long count;
+
+        private final List<Throwable> exemplars;
+
+        public Entry(TaskWarnningEvent.Cause cause, Class<? extends Throwable> throwableType, long count, List<Throwable> exemplars) {
+            this.cause = cause;
+            this.throwableType = throwableType;
+            this.count = count;
+            this.exemplars = exemplars;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s): %d", cause, throwableType == null ? null : throwableType.getSimpleName(), count);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskWarnningSummaryEvent occured, taskId: %s, timestamp: %s, total: %d, entries: [%s]",
+                task.getTaskId(), timestamp, getTotal(), entries.stream().map(Entry::toString).collect(Collectors.joining(", ")));
+    }
+
+}
@@ -1,77 +1,126 @@
 package com.aihuishou.pipeline.core.event.dispatcher;
 
+import com.aihuishou.pipeline.core.common.Counter;
 import com.aihuishou.pipeline.core.common.LocalHolder;
 import com.aihuishou.pipeline.core.config.GlobalConfig;
 import com.aihuishou.pipeline.core.event.TaskEvent;
 import com.aihuishou.pipeline.core.event.TaskLifecycleEvent;
 import com.aihuishou.pipeline.core.event.subscriber.TaskEventSubscriber;
+import com.aihuishou.pipeline.core.strategy.EventOverflowPolicy;
 import com.aihuishou.pipeline.core.task.PipeTask;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.util.DaemonThreadFactory;
-import org.apache.commons.collections4.CollectionUtils;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 本地事件分发器（基于 disruptor 实现）
+ * 环形队列已满时事件进入溢出队列，由后台线程按序补发，发布线程不会被慢订阅者阻塞（{@link EventOverflowPolicy#BLOCK} 除外）
+ * 事件按任务 id 分区，每个分区由独立的消费者（各自的消费序号）处理，同一任务的事件保持有序，不同任务的事件并行处理，
+ * 因此全局订阅者可能被多个线程并发调用
  * @author ethan zhang
  */
 public enum DisruptorTaskEventDispatcher implements TaskEventDispatcher {
 
     INSTANCE;
 
-    private final ConcurrentLinkedQueue<TaskEventSubscriber> subscribers;
+    private final TaskEventSubscriberRegistry subscribers;
 
     private final Disruptor<LocalHolder<TaskEvent>> disruptor;
 
-    private final Cache<String, ConcurrentLinkedQueue<TaskLifecycleEvent>> eventStream;
+    /**
+     * 分区消费者，每个消费者只处理属于自己分区的事件
+     */
+    private final PartitionHandler[] handlers;
+
+    private final Cache<String, TaskEventStream> eventStream;
+
+    /**
+     * 溢出队列，队首元素由补发线程发布成功后才移除，保证事件顺序
+     */
+    private final ArrayDeque<TaskEvent> overflow = new ArrayDeque<>();
+
+    private final ReentrantLock overflowLock = new ReentrantLock();
+
+    private final Condition overflowNotEmpty = overflowLock.newCondition();
+
+    /**
+     * 溢出队列长度，不为 0 时新事件也必须进入溢出队列，避免越过先到的事件
+     */
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+    /**
+     * 溢出队列中可丢弃事件的数量
+     */
+    private int droppableSize;
+
+    /**
+     * 溢出队列中可丢弃事件的合并键
+     */
+    private final Set<Object> pendingKeys = new HashSet<>();
+
+    private final LongAdder droppedCount = new LongAdder();
 
     {
-        subscribers = new ConcurrentLinkedQueue<>();
+        subscribers = new TaskEventSubscriberRegistry();
         eventStream = Caffeine.newBuilder()
                 .initialCapacity(GlobalConfig.LOCAL_REGISTRY.getInitialCapacity())
                 .maximumSize(GlobalConfig.LOCAL_REGISTRY.getMaximumSize())
                 .expireAfterWrite(GlobalConfig.LOCAL_REGISTRY.getTimeout())
                 .build();
         disruptor = new Disruptor<>(LocalHolder::new, GlobalConfig.LOCAL_DISPATCHER.getBufferSize(), DaemonThreadFactory.INSTANCE);
-        disruptor.handleEventsWith(this::onEvent);
+        handlers = new PartitionHandler[Math.max(1, GlobalConfig.LOCAL_DISPATCHER.getPartitions())];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = new PartitionHandler(i);
+        }
+        disruptor.handleEventsWith(handlers);
         disruptor.start();
+        Thread drainer = DaemonThreadFactory.INSTANCE.newThread(this::drainOverflow);
+        drainer.setName("task-event-overflow-drainer");
+        drainer.start();
     }
 
     @Override
     public void dispatch(TaskEvent event) {
-        disruptor.getRingBuffer().publishEvent(this::translate, event);
+        RingBuffer<LocalHolder<TaskEvent>> ringBuffer = disruptor.getRingBuffer();
+        if (GlobalConfig.LOCAL_DISPATCHER.getOverflowPolicy() == EventOverflowPolicy.BLOCK) {
+            ringBuffer.publishEvent(this::translate, event);
+        } else if (overflowSize.get() > 0 || !ringBuffer.tryPublishEvent(this::translate, event)) {
+            TaskEvent dropped = offerOverflow(event);
+            if (dropped != null) {
+                onDropped(dropped);
+            }
+        }
         if (event instanceof TaskLifecycleEvent) {
             PipeTask<?, ?> task = ((TaskLifecycleEvent) event).getTask();
-            ConcurrentLinkedQueue<TaskLifecycleEvent> taskEventStream = eventStream.getIfPresent(task.getTaskId());
-            if (CollectionUtils.isNotEmpty(taskEventStream)) {
-                taskEventStream.add((TaskLifecycleEvent) event);
-            } else {
-                ConcurrentLinkedQueue<TaskLifecycleEvent> newTaskEventStream = new ConcurrentLinkedQueue<>();
-                newTaskEventStream.add((TaskLifecycleEvent) event);
-                eventStream.put(task.getTaskId(), newTaskEventStream);
-            }
+            eventStream.get(task.getTaskId(), taskId -> new TaskEventStream(GlobalConfig.LOCAL_DISPATCHER.getEventStreamCapacity()))
+                    .add((TaskLifecycleEvent) event);
         }
-
     }
 
     @Override
     public void addSubsriber(TaskEventSubscriber subscriber) {
-        subscribers.add(subscriber);
+        subscribers.register(subscriber);
     }
 
     @Override
     public List<TaskLifecycleEvent> getTaskEventStream(String taskId) {
-        ConcurrentLinkedQueue<TaskLifecycleEvent> taskEventStream = eventStream.getIfPresent(taskId);
-        if (CollectionUtils.isNotEmpty(taskEventStream)) {
-            return new ArrayList<>(taskEventStream);
-        }
-        return Collections.emptyList();
+        TaskEventStream taskEventStream = eventStream.getIfPresent(taskId);
+        return taskEventStream == null ? Collections.emptyList() : taskEventStream.snapshot();
     }
 
     @Override
@@ -79,23 +128,160 @@ public enum DisruptorTaskEventDispatcher implements TaskEventDispatcher {
         eventStream.invalidate(taskId);
     }
 
+    @Override
+    public Map<TaskEventSubscriber, TaskEventSubscriberStats> getSubscriberStats() {
+        return subscribers.stats();
+    }
+
+    /**
+     * 各分区消费者尚未处理的事件数（包括不属于该分区、只需跳过的事件）
+     */
+    public long[] getPartitionLag() {
+        long cursor = disruptor.getRingBuffer().getCursor();
+        long[] lag = new long[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            lag[i] = cursor - disruptor.getSequenceValueFor(handlers[i]);
+        }
+        return lag;
+    }
+
+    /**
+     * 因溢出被丢弃的事件总数
+     */
+    public long getDroppedEventCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 放入溢出队列，返回被丢弃的事件（可能是新事件本身，也可能是被淘汰的旧事件），没有丢弃时返回 null
+     */
+    private TaskEvent offerOverflow(TaskEvent event) {
+        overflowLock.lock();
+        try {
+            TaskEvent dropped = null;
+            if (event.isDroppable()) {
+                EventOverflowPolicy policy = GlobalConfig.LOCAL_DISPATCHER.getOverflowPolicy();
+                Object key = event.getCoalesceKey();
+                if (policy == EventOverflowPolicy.COALESCE && key != null && pendingKeys.contains(key)) {
+                    return event;
+                }
+                if (droppableSize >= GlobalConfig.LOCAL_DISPATCHER.getOverflowCapacity()) {
+                    if (policy != EventOverflowPolicy.DROP_OLDEST || (dropped = evictOldest()) == null) {
+                        return event;
+                    }
+                }
+                droppableSize++;
+                if (key != null) {
+                    pendingKeys.add(key);
+                }
+            }
+            overflow.addLast(event);
+            overflowSize.incrementAndGet();
+            overflowNotEmpty.signal();
+            return dropped;
+        } finally {
+            overflowLock.unlock();
+        }
+    }
+
+    /**
+     * 淘汰最早的可丢弃事件，跳过正在补发的队首元素
+     */
+    private TaskEvent evictOldest() {
+        Iterator<TaskEvent> iterator = overflow.iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+        }
+        while (iterator.hasNext()) {
+            TaskEvent event = iterator.next();
+            if (event.isDroppable()) {
+                iterator.remove();
+                overflowSize.decrementAndGet();
+                release(event);
+                return event;
+            }
+        }
+        return null;
+    }
+
+    private void release(TaskEvent event) {
+        if (event.isDroppable()) {
+            droppableSize--;
+            Object key = event.getCoalesceKey();
+            if (key != null) {
+                pendingKeys.remove(key);
+            }
+        }
+    }
+
+    private void onDropped(TaskEvent event) {
+        droppedCount.increment();
+        if (event instanceof TaskLifecycleEvent) {
+            Counter counter = ((TaskLifecycleEvent) event).getTask().getContext().getDroppedEventCounter();
+            if (counter != null) {
+                counter.incr();
+            }
+        }
+    }
+
+    /**
+     * 补发线程，以阻塞方式把溢出队列中的事件依次发布到环形队列
+     */
+    private void drainOverflow() {
+        while (true) {
+            TaskEvent head;
+            overflowLock.lock();
+            try {
+                while (overflow.isEmpty()) {
+                    overflowNotEmpty.await();
+                }
+                head = overflow.peekFirst();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                overflowLock.unlock();
+            }
+            disruptor.getRingBuffer().publishEvent(this::translate, head);
+            overflowLock.lock();
+            try {
+                release(overflow.pollFirst());
+                overflowSize.decrementAndGet();
+            } finally {
+                overflowLock.unlock();
+            }
+        }
+    }
+
     private void translate(LocalHolder<TaskEvent> event, long sequence, TaskEvent data) {
         event.set(data);
     }
 
-    private void onEvent(LocalHolder<TaskEvent> event, long sequence, boolean endOfBatch) {
-        subscribers.stream().filter(subscriber -> subscriber.supports(event.get()))
-                .forEach(subscriber -> {
-                    try {
-                        subscriber.subscribe(event.get());
-                    } catch (Exception e) {
-                        try {
-                            subscriber.handleException(event.get(), e);
-                        } catch (Exception he) {
-                            // do nothing
-                        }
-                    }
-                });
+    /**
+     * 按任务 id 计算分区，非任务事件固定在第一个分区
+     */
+    private int partitionOf(TaskEvent event) {
+        if (event instanceof TaskLifecycleEvent) {
+            int h = ((TaskLifecycleEvent) event).getTask().getTaskId().hashCode();
+            return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % handlers.length;
+        }
+        return 0;
+    }
+
+    private class PartitionHandler implements EventHandler<LocalHolder<TaskEvent>> {
+
+        private final int partition;
+
+        private PartitionHandler(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void onEvent(LocalHolder<TaskEvent> event, long sequence, boolean endOfBatch) {
+            if (partitionOf(event.get()) == partition) {
+                subscribers.dispatch(event.get());
+            }
+        }
+
     }
 
 }
@@ -1,5 +1,6 @@
 package com.aihuishou.pipeline.core.event.dispatcher;
 
+import com.aihuishou.pipeline.core.config.GlobalConfig;
 import com.aihuishou.pipeline.core.event.TaskEvent;
 import com.aihuishou.pipeline.core.event.TaskLifecycleEvent;
 import com.aihuishou.pipeline.core.event.subscriber.TaskEventSubscriber;
@@ -8,8 +9,9 @@ import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -22,9 +24,9 @@ public enum GuavaTaskEventDispatcher implements TaskEventDispatcher {
 
     private final EventBus eventBus = new AsyncEventBus(GuavaTaskEventDispatcher.class.getName(), Executors.newFixedThreadPool(1));
 
-    private final ConcurrentMap<String, ConcurrentLinkedDeque<TaskLifecycleEvent>> eventStream = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TaskEventStream> eventStream = new ConcurrentHashMap<>();
 
-    private final ConcurrentLinkedQueue<TaskEventSubscriber> subscribers = new ConcurrentLinkedQueue<>();
+    private final TaskEventSubscriberRegistry subscribers = new TaskEventSubscriberRegistry();
 
     {
         eventBus.register(new Subscriber());
@@ -36,19 +38,20 @@ public enum GuavaTaskEventDispatcher implements TaskEventDispatcher {
         if (event instanceof TaskLifecycleEvent) {
             TaskLifecycleEvent taskEvent = (TaskLifecycleEvent) event;
             PipeTask<?, ?> task = taskEvent.getTask();
-            eventStream.putIfAbsent(task.getTaskId(), new ConcurrentLinkedDeque<>());
-            eventStream.get(task.getTaskId()).add(taskEvent);
+            eventStream.computeIfAbsent(task.getTaskId(), taskId -> new TaskEventStream(GlobalConfig.LOCAL_DISPATCHER.getEventStreamCapacity()))
+                    .add(taskEvent);
         }
     }
 
     @Override
     public void addSubsriber(TaskEventSubscriber subscriber) {
-        subscribers.add(subscriber);
+        subscribers.register(subscriber);
     }
 
     @Override
     public List<TaskLifecycleEvent> getTaskEventStream(String taskId) {
-        return new ArrayList<>(eventStream.get(taskId));
+        TaskEventStream taskEventStream = eventStream.get(taskId);
+        return taskEventStream == null ? Collections.emptyList() : taskEventStream.snapshot();
     }
 
     @Override
@@ -56,24 +59,17 @@ public enum GuavaTaskEventDispatcher implements TaskEventDispatcher {
         eventStream.remove(taskId);
     }
 
+    @Override
+    public Map<TaskEventSubscriber, TaskEventSubscriberStats> getSubscriberStats() {
+        return subscribers.stats();
+    }
+
     private class Subscriber {
 
         @SuppressWarnings("unused")
         @Subscribe
         public void subscribeMigrationEvent(TaskEvent event) {
-            for (TaskEventSubscriber subscriber : subscribers) {
-                if (subscriber.supports(event)) {
-                    try {
-                        subscriber.subscribe(event);
-                    } catch (Exception e) {
-                        try {
-                            subscriber.handleException(event, e);
-                        } catch (Exception ee) {
-                            // do nothing
-                        }
-                    }
-                }
-            }
+            subscribers.dispatch(event);
         }
 
     }
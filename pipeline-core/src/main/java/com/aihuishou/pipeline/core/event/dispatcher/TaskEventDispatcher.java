@@ -4,7 +4,9 @@ import com.aihuishou.pipeline.core.event.TaskEvent;
 import com.aihuishou.pipeline.core.event.TaskLifecycleEvent;
 import com.aihuishou.pipeline.core.event.subscriber.TaskEventSubscriber;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 任务事件分发器
@@ -32,4 +34,11 @@ public interface TaskEventDispatcher {
      */
     void clearTaskEventStream(String taskId);
 
+    /**
+     * 获取订阅者统计
+     */
+    default Map<TaskEventSubscriber, TaskEventSubscriberStats> getSubscriberStats() {
+        return Collections.emptyMap();
+    }
+
 }
@@ -0,0 +1,46 @@
+package com.aihuishou.pipeline.core.event.dispatcher;
+
+import com.aihuishou.pipeline.core.event.TaskLifecycleEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 有界的任务事件流，超出容量时优先淘汰最早的可丢弃事件，没有可丢弃事件时淘汰最早的事件
+ * @author ethan zhang
+ */
+class TaskEventStream {
+
+    private final int capacity;
+
+    private final ArrayDeque<TaskLifecycleEvent> events = new ArrayDeque<>();
+
+    TaskEventStream(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    synchronized void add(TaskLifecycleEvent event) {
+        if (events.size() >= capacity) {
+            evict();
+        }
+        events.addLast(event);
+    }
+
+    synchronized List<TaskLifecycleEvent> snapshot() {
+        return new ArrayList<>(events);
+    }
+
+    private void evict() {
+        Iterator<TaskLifecycleEvent> iterator = events.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDroppable()) {
+                iterator.remove();
+                return;
+            }
+        }
+        events.pollFirst();
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.aihuishou.pipeline.core.event.dispatcher;
+
+import com.aihuishou.pipeline.core.event.*;
+import com.aihuishou.pipeline.core.event.subscriber.TaskEventSubscriber;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * 订阅者路由表
+ * 全局订阅者与任务订阅者分开存放，按事件类型预先计算分发列表，分发开销只与匹配的订阅者数量相关
+ * 任务订阅者在任务进入终态（完成、失败、终止）后自动移除；被淘汰的任务仍在运行，其订阅者保留
+ * 任务进入终态后注册的任务订阅者不会再收到该任务的终态事件，直接丢弃，不占用路由表
+ * @author ethan zhang
+ */
+class TaskEventSubscriberRegistry {
+
+    /**
+     * 记录最近进入终态的任务数
+     */
+    private static final int ENDED_TASKS_CAPACITY = 1 << 12;
+
+    /**
+     * 终态任务的记录保留时间
+     */
+    private static final Duration ENDED_TASKS_RETENTION = Duration.ofMinutes(10);
+
+    private final Routes globalRoutes = new Routes();
+
+    private final ConcurrentMap<String, Routes> taskRoutes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<TaskEventSubscriber, TaskEventSubscriberStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 最近进入终态的任务 id
+     */
+    private final Cache<String, Boolean> endedTasks = Caffeine.newBuilder()
+            .maximumSize(ENDED_TASKS_CAPACITY)
+            .expireAfterWrite(ENDED_TASKS_RETENTION)
+            .build();
+
+    /**
+     * 注册订阅者，任务已进入终态时丢弃该任务的订阅者
+     */
+    void register(TaskEventSubscriber subscriber) {
+        String taskId = subscriber.getTaskId();
+        if (taskId == null) {
+            stats.putIfAbsent(subscriber, new TaskEventSubscriberStats());
+            globalRoutes.add(subscriber);
+            return;
+        }
+        if (endedTasks.getIfPresent(taskId) != null) {
+            return;
+        }
+        stats.putIfAbsent(subscriber, new TaskEventSubscriberStats());
+        Routes routes = taskRoutes.computeIfAbsent(taskId, k -> new Routes());
+        routes.add(subscriber);
+        // 与终态事件的分发并发时，终态已记录则由注册方移除
+        if (endedTasks.getIfPresent(taskId) != null) {
+            remove(taskId);
+        }
+    }
+
+    /**
+     * 获取订阅了该事件的订阅者，全局订阅者在前，任务订阅者在后
+     */
+    List<TaskEventSubscriber> route(TaskEvent event) {
+        List<TaskEventSubscriber> global = globalRoutes.route(event.getClass());
+        if (!(event instanceof TaskLifecycleEvent)) {
+            return global;
+        }
+        Routes routes = taskRoutes.get(((TaskLifecycleEvent) event).getTask().getTaskId());
+        if (routes == null) {
+            return global;
+        }
+        List<TaskEventSubscriber> task = routes.route(event.getClass());
+        if (task.isEmpty()) {
+            return global;
+        }
+        List<TaskEventSubscriber> all = new ArrayList<>(global.size() + task.size());
+        all.addAll(global);
+        all.addAll(task);
+        return all;
+    }
+
+    /**
+     * 分发完成后调用，任务进入终态时移除该任务的订阅者
+     */
+    void afterDispatch(TaskEvent event) {
+        if (event instanceof TaskFinishedEvent || event instanceof TaskFailedEvent || event instanceof TaskShutdownEvent) {
+            String taskId = ((TaskLifecycleEvent) event).getTask().getTaskId();
+            endedTasks.put(taskId, Boolean.TRUE);
+            remove(taskId);
+        }
+    }
+
+    private void remove(String taskId) {
+        Routes routes = taskRoutes.remove(taskId);
+        if (routes != null) {
+            routes.snapshot.subscribers.forEach(stats::remove);
+        }
+    }
+
+    /**
+     * 依次调用订阅了该事件的订阅者，单个订阅者的异常交给其自身处理，不影响其他订阅者
+     */
+    void dispatch(TaskEvent event) {
+        for (TaskEventSubscriber subscriber : route(event)) {
+            if (!subscriber.supports(event)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                subscriber.subscribe(event);
+            } catch (Exception e) {
+                failed = true;
+                try {
+                    subscriber.handleException(event, e);
+                } catch (Exception he) {
+                    // do nothing
+                }
+            }
+            TaskEventSubscriberStats subscriberStats = stats.get(subscriber);
+            if (subscriberStats != null) {
+                subscriberStats.record(event.getTimestamp(), System.nanoTime() - start, failed);
+            }
+        }
+        afterDispatch(event);
+    }
+
+    /**
+     * 当前仍在订阅的订阅者统计
+     */
+    Map<TaskEventSubscriber, TaskEventSubscriberStats> stats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 当前仍在订阅的任务数
+     */
+    int taskCount() {
+        return taskRoutes.size();
+    }
+
+    /**
+     * 同一组订阅者的路由，订阅者变更时整体替换快照，分发列表按事件类型懒加载
+     */
+    private static class Routes {
+
+        private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+        synchronized void add(TaskEventSubscriber subscriber) {
+            List<TaskEventSubscriber> subscribers = new ArrayList<>(snapshot.subscribers);
+            subscribers.add(subscriber);
+            snapshot = new Snapshot(subscribers);
+        }
+
+        List<TaskEventSubscriber> route(Class<? extends TaskEvent> eventType) {
+            Snapshot current = snapshot;
+            return current.routes.computeIfAbsent(eventType, type -> current.subscribers.stream()
+                    .filter(subscriber -> subscriber.getEventType().isAssignableFrom(type))
+                    .collect(Collectors.toList()));
+        }
+
+    }
+
+    private static class Snapshot {
+
+        private final List<TaskEventSubscriber> subscribers;
+
+        private final ConcurrentMap<Class<? extends TaskEvent>, List<TaskEventSubscriber>> routes = new ConcurrentHashMap<>();
+
+        private Snapshot(List<TaskEventSubscriber> subscribers) {
+            this.subscribers = subscribers;
+        }
+
+    }
+
+}
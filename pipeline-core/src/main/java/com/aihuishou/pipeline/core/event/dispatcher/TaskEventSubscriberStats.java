@@ -0,0 +1,78 @@
+package com.aihuishou.pipeline.core.event.dispatcher;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订阅者统计：调用次数、失败次数、耗时，以及事件从产生到被该订阅者处理的延迟
+ * @author ethan zhang
+ */
+public class TaskEventSubscriberStats {
+
+    private final LongAdder invocations = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private volatile long lastLagMillis;
+
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    void record(Instant timestamp, long nanos, boolean failed) {
+        invocations.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        long lag = Math.max(0L, System.currentTimeMillis() - timestamp.toEpochMilli());
+        lastLagMillis = lag;
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 平均每次调用耗时
+     */
+    public long getAverageNanos() {
+        long n = getInvocations();
+        return n == 0 ? 0L : getTotalNanos() / n;
+    }
+
+    /**
+     * 最近一次处理的事件从产生到开始处理的延迟
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("invocations: %d, failures: %d, avg: %dns, max: %dns, lag: %dms, maxLag: %dms",
+                getInvocations(), getFailures(), getAverageNanos(), getMaxNanos(), getLastLagMillis(), getMaxLagMillis());
+    }
+
+}
@@ -24,6 +24,11 @@ public abstract class GenericTaskEventSubscriber<E extends TaskEvent> implements
         return eventType.isAssignableFrom(event.getClass());
     }
 
+    @Override
+    public Class<E> getEventType() {
+        return eventType;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void subscribe(TaskEvent event) {
@@ -30,6 +30,16 @@ public abstract class PipeTaskEventSubscriber<E extends TaskLifecycleEvent> impl
         return eventType.isAssignableFrom(event.getClass()) && task.getTaskId().equals(((TaskLifecycleEvent) event).getTask().getTaskId());
     }
 
+    @Override
+    public Class<E> getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public String getTaskId() {
+        return task.getTaskId();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void subscribe(TaskEvent event) {
@@ -16,4 +16,18 @@ public interface TaskEventSubscriber {
 
     default void handleException(TaskEvent event, Throwable throwable) {}
 
+    /**
+     * 订阅的事件类型，分发器据此建立路由，只有该类型及其子类的事件才会交给 {@link #supports} 判断
+     */
+    default Class<? extends TaskEvent> getEventType() {
+        return TaskEvent.class;
+    }
+
+    /**
+     * 订阅的任务 id，为 null 时订阅所有任务的事件；非 null 时在该任务进入终态后自动取消订阅
+     */
+    default String getTaskId() {
+        return null;
+    }
+
 }
@@ -30,10 +30,11 @@ public abstract class AbstractTaskExecutor<I, O> implements TaskExecutor<I, O> {
         TaskContext<I, O> context = task.getContext();
         if (context.getReaderState().get().canRun() && context.getProcessorState().get().canRun() && context.getWriterState().get().canRun()) {
             context.getStartTime().set(Instant.now());
+            // 先发布启动事件，保证其先于执行过程中产生的完成、失败等事件被分发
+            task.getDispatcher().dispatch(new TaskStartedEvent(task));
             readerExecutor.start(task, task.getReader());
             processorExecutor.start(task, task.getProcessorChain());
             writerExecutor.start(task, task.getWriter());
-            task.getDispatcher().dispatch(new TaskStartedEvent(task));
         } else {
             throw new TaskExecutionException("The task can not start on this state!");
         }
@@ -59,6 +60,7 @@ public abstract class AbstractTaskExecutor<I, O> implements TaskExecutor<I, O> {
             readerExecutor.shutDown(task, task.getReader());
             processorExecutor.shutDown(task, task.getProcessorChain());
             writerExecutor.shutDown(task, task.getWriter());
+            context.getWarnningAggregator().flush(task);
             task.getDispatcher().dispatch(new TaskShutdownEvent(task));
         }else {
             throw new TaskExecutionException("The task can not shutdown on this state!");
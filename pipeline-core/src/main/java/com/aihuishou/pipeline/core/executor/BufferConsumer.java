@@ -0,0 +1,70 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.strategy.IdleStrategy;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 从缓冲区攒批消费，批次达到下限或等待超过 maxLinger 时输出
+ * @author ethan zhang
+ */
+class BufferConsumer {
+
+    private BufferConsumer() {}
+
+    /**
+     * 消费一个批次，缓冲区为空时按空闲策略等待并返回空集合
+     * 取到首个元素后，若批次不足 minBatchSize，则在 maxLinger 内继续攒批，上游已结束时立即输出
+     * 等待数据的时间（包括攒批等待）计入 metrics 的空闲时间
+     */
+    static <T> List<T> consume(DataBuffer<T> buffer, TaskConfigAttributes attributes, IdleStrategy idleStrategy,
+                               StageMetrics metrics, BooleanSupplier upstreamRunning) {
+        int maxBatchSize = attributes.getMaxConsumeCount();
+        long start = System.nanoTime();
+        List<T> batch = buffer.consume(maxBatchSize, idleStrategy.blockNanos(), TimeUnit.NANOSECONDS);
+        if (batch.isEmpty()) {
+            idleStrategy.idle();
+            metrics.recordIdle(System.nanoTime() - start);
+            return batch;
+        }
+        metrics.recordIdle(System.nanoTime() - start);
+        idleStrategy.reset();
+        int minBatchSize = Math.min(attributes.getMinBatchSize(), maxBatchSize);
+        long lingerNanos = attributes.getMaxLinger().toNanos();
+        if (batch.size() >= minBatchSize || lingerNanos <= 0L) {
+            return batch;
+        }
+        long lingerStart = System.nanoTime();
+        long deadline = lingerStart + lingerNanos;
+        // 攒批期间各次消费的结果最后一次合并，long 缓冲区合并时不装箱
+        List<List<T>> parts = new ArrayList<>();
+        parts.add(batch);
+        int accumulated = batch.size();
+        while (accumulated < minBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L || ThreadUtil.isCurThreadInterrupted()
+                    || (!upstreamRunning.getAsBoolean() && buffer.isEmpty())) {
+                break;
+            }
+            List<T> more = buffer.consume(maxBatchSize - accumulated, Math.min(idleStrategy.blockNanos(), remaining), TimeUnit.NANOSECONDS);
+            if (more.isEmpty()) {
+                idleStrategy.idle();
+            } else {
+                parts.add(more);
+                accumulated += more.size();
+            }
+        }
+        idleStrategy.reset();
+        metrics.recordIdle(System.nanoTime() - lingerStart);
+        return DataChunk.concat(parts).asList();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.strategy.IdleStrategy;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 批量写入缓冲区，缓冲区已满时按空闲策略等待
+ * @author ethan zhang
+ */
+class BufferProducer {
+
+    private BufferProducer() {}
+
+    /**
+     * 将数据整批写入缓冲区，每次只写入上次剩余的部分，返回写入成功的数量
+     * 超过等待时间后仍未写入的数据交由 onFailure 处理，因缓冲区已满而等待的时间计入 metrics
+     */
+    static <T> int produce(DataBuffer<T> buffer, List<T> data, IdleStrategy idleStrategy, long timeoutNanos,
+                           StageMetrics metrics, Consumer<Exception> onFailure) {
+        if (data.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        int produced = 0;
+        idleStrategy.reset();
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            // 阻塞策略直接在缓冲区上等待空闲位置，其余策略只做一次非阻塞尝试
+            long wait = Math.max(0L, Math.min(idleStrategy.blockNanos(), remaining));
+            produced += buffer.tryProduceAll(data.subList(produced, data.size()), wait, TimeUnit.NANOSECONDS);
+            if (produced == data.size()) {
+                metrics.recordBlocked(System.nanoTime() - start);
+                return produced;
+            }
+            if (remaining <= 0L || ThreadUtil.isCurThreadInterrupted()) {
+                metrics.recordBlocked(System.nanoTime() - start);
+                onFailure.accept(new TaskExecutionException(String.format("Produce to buffer timeout, %d of %d elements are discarded!",
+                        data.size() - produced, data.size())));
+                return produced;
+            }
+            idleStrategy.idle();
+        }
+    }
+
+}
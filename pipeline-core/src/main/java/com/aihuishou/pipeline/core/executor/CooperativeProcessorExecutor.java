@@ -0,0 +1,320 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.context.TaskState;
+import com.aihuishou.pipeline.core.context.TaskStateHolder;
+import com.aihuishou.pipeline.core.event.TaskFailedEvent;
+import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
+import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.processor.PipeProcessorChain;
+import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 协作式 processor 执行器
+ * 阶段划分与 {@link LocalProcessorExecutor} 一致，每个阶段按并行度创建若干调度单元竞争消费同一个读取缓冲区（不支持自动伸缩）
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@Getter
+public class CooperativeProcessorExecutor<I, O> implements ProcessorExecutor<I, O> {
+
+    private CompletableFuture<Void> future;
+
+    private final List<CooperativeUnit> units = new ArrayList<>();
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Override
+    public void start(PipeTask<I, O> task, PipeProcessorChain<I, O> processorChain) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getProcessorState().get().canRun()) {
+            context.getProcessorState().set(TaskState.RUNNING);
+        } else {
+            throw new TaskExecutionException("The processor can not run on this state!");
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<List<PipeProcessorNode>> stages = groupStages(processorChain.getNodes());
+        for (int i = 0; i < stages.size(); i++) {
+            boolean isHead = i == 0;
+            boolean isTail = i == stages.size() - 1;
+            List<PipeProcessorNode> stage = stages.get(i);
+            PipeProcessorNode last = stage.get(stage.size() - 1);
+            PipeProcessorNode pre = isHead ? null : stages.get(i - 1).get(stages.get(i - 1).size() - 1);
+            // 上个阶段状态，头阶段取 reader state，非头阶段取上个阶段尾节点的 state
+            TaskStateHolder preState = isHead ? context.getReaderState() : pre.getState();
+            DataBuffer readBuffer = isHead ? context.getReadBuffer() : pre.getBuffer();
+            DataBuffer writeBuffer = isTail ? context.getWriteBuffer() : last.getBuffer();
+            List<StageMetrics> stageMetrics = stage.stream()
+                    .map(node -> context.getMetrics().getProcessor(processorChain.getNodes().indexOf(node)))
+                    .collect(Collectors.toList());
+            int parallelism = Math.max(1, stage.get(0).getAttributes().getParallelism());
+            AtomicInteger running = new AtomicInteger(parallelism);
+            stage.forEach(node -> {
+                node.getState().set(TaskState.RUNNING);
+                node.getWorkers().set(parallelism);
+            });
+            for (int j = 0; j < parallelism; j++) {
+                CompletableFuture<Void> f = new CompletableFuture<>();
+                StageUnit unit = new StageUnit(task, stage, preState, readBuffer, writeBuffer, stageMetrics, isTail, running, f);
+                CooperativeScheduler.INSTANCE.watchConsumer(readBuffer, unit);
+                CooperativeScheduler.INSTANCE.watchProducer(writeBuffer, unit);
+                units.add(unit);
+                futures.add(f);
+            }
+        }
+        future = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        units.forEach(CooperativeUnit::submit);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<List<PipeProcessorNode>> groupStages(List<PipeProcessorNode> nodes) {
+        List<List<PipeProcessorNode>> stages = new ArrayList<>();
+        for (PipeProcessorNode node : nodes) {
+            if (stages.isEmpty() || !node.isFused()) {
+                stages.add(new ArrayList<>());
+            }
+            stages.get(stages.size() - 1).add(node);
+        }
+        return stages;
+    }
+
+    @Override
+    public void stop(PipeTask<I, O> task, PipeProcessorChain<I, O> processorChain) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getProcessorState().get().canStop()) {
+            context.getProcessorState().set(TaskState.STOPPING);
+            processorChain.getNodes().forEach(node -> node.getState().set(TaskState.STOPPING));
+            units.forEach(CooperativeUnit::wake);
+        } else {
+            throw new TaskExecutionException("The processor can not stop on this state!");
+        }
+    }
+
+    @Override
+    public void shutDown(PipeTask<I, O> task, PipeProcessorChain<I, O> processorChain) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getProcessorState().get().canShutdown()) {
+            context.getProcessorState().set(TaskState.TERMINATED);
+            processorChain.getNodes().forEach(node -> node.getState().set(TaskState.TERMINATED));
+            units.forEach(CooperativeUnit::wake);
+            Optional.ofNullable(future).ifPresent(f -> f.cancel(true));
+        } else if (!context.getProcessorState().get().isFinalState()) {
+            // 上游先被终止时，当前阶段可能已自行结束，此时无需再终止
+            throw new TaskExecutionException("The processor can not shutdown on this state!");
+        }
+    }
+
+    @Override
+    public void join(PipeTask<I, O> task, PipeProcessorChain<I, O> processorChain) {
+        future.join();
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static class StageUnit extends CooperativeUnit {
+
+        private final PipeTask task;
+
+        private final TaskContext context;
+
+        private final List<PipeProcessorNode> stage;
+
+        private final PipeProcessorNode last;
+
+        private final TaskStateHolder preState;
+
+        private final DataBuffer readBuffer;
+
+        private final DataBuffer writeBuffer;
+
+        private final List<StageMetrics> stageMetrics;
+
+        private final TaskConfigAttributes attributes;
+
+        private final boolean isTail;
+
+        /**
+         * 同一阶段尚未结束的调度单元数，最后一个正常结束的单元负责更新节点状态
+         */
+        private final AtomicInteger running;
+
+        private final PendingOutput<Object> pending;
+
+        private final CompletableFuture<Void> future;
+
+        /**
+         * 攒批中的各次消费结果、已攒数量及攒批截止时间，处理前一次合并，long 缓冲区合并时不装箱
+         */
+        private List<List<Object>> batch = new ArrayList<>();
+
+        private int batchSize;
+
+        private long lingerDeadline;
+
+        /**
+         * 开始等待输入的时间，0 表示未在等待
+         */
+        private long idleSince;
+
+        private StageUnit(PipeTask task, List<PipeProcessorNode> stage, TaskStateHolder preState, DataBuffer readBuffer, DataBuffer writeBuffer,
+                          List<StageMetrics> stageMetrics, boolean isTail, AtomicInteger running, CompletableFuture<Void> future) {
+            this.task = task;
+            this.context = task.getContext();
+            this.stage = stage;
+            this.last = stage.get(stage.size() - 1);
+            this.preState = preState;
+            this.readBuffer = readBuffer;
+            this.writeBuffer = writeBuffer;
+            this.stageMetrics = stageMetrics;
+            this.attributes = stage.get(0).getAttributes();
+            this.isTail = isTail;
+            this.running = running;
+            this.pending = new PendingOutput<Object>(writeBuffer, last.getAttributes().getProduceTimeout().toNanos(), stageMetrics.get(stageMetrics.size() - 1));
+            this.future = future;
+        }
+
+        @Override
+        protected Slice runSlice(int maxChunks) {
+            StageMetrics firstMetrics = stageMetrics.get(0);
+            if (idleSince != 0L) {
+                firstMetrics.recordIdle(System.nanoTime() - idleSince);
+                idleSince = 0L;
+            }
+            for (int i = 0; i < maxChunks; i++) {
+                // 若同阶段的其他调度单元已失败或被终止，当前单元随之结束
+                TaskState curState = last.getState().get();
+                if (curState == TaskState.FAILED || curState == TaskState.TERMINATED) {
+                    return Slice.DONE;
+                }
+                if (!flush()) {
+                    wakeAfter(pending.remainingNanos());
+                    return Slice.WAIT;
+                }
+                TaskState upstream = preState.get();
+                List input = readBuffer.consumeIfPossible(attributes.getMaxConsumeCount() - batchSize);
+                if (!input.isEmpty()) {
+                    CooperativeScheduler.INSTANCE.signalConsumed(readBuffer);
+                    if (batch.isEmpty()) {
+                        lingerDeadline = System.nanoTime() + attributes.getMaxLinger().toNanos();
+                    }
+                    batch.add(input);
+                    batchSize += input.size();
+                } else if (batch.isEmpty()) {
+                    // 上个阶段已结束且读取缓冲区为空时结束，否则等待上游写入后唤醒
+                    if (upstream != TaskState.RUNNING && readBuffer.isEmpty()) {
+                        finish();
+                        return Slice.DONE;
+                    }
+                    idleSince = System.nanoTime();
+                    return Slice.WAIT;
+                }
+                // 批次不足下限且未超过攒批时间时继续等待
+                long remaining = lingerDeadline - System.nanoTime();
+                if (batchSize < Math.min(attributes.getMinBatchSize(), attributes.getMaxConsumeCount())
+                        && remaining > 0L && upstream == TaskState.RUNNING) {
+                    wakeAfter(remaining);
+                    idleSince = System.nanoTime();
+                    return Slice.WAIT;
+                }
+                DataChunk data = DataChunk.concat(batch);
+                batch = new ArrayList<>();
+                batchSize = 0;
+                if (!process(data)) {
+                    return Slice.DONE;
+                }
+            }
+            if (!flush()) {
+                wakeAfter(pending.remainingNanos());
+                return Slice.WAIT;
+            }
+            return Slice.YIELD;
+        }
+
+        /**
+         * 阶段内的节点依次处理同一批数据，返回 false 表示任务已失败
+         */
+        private boolean process(DataChunk input) {
+            DataChunk output = input;
+            PipeProcessorNode cur = stage.get(0);
+            try {
+                for (int k = 0; k < stage.size(); k++) {
+                    cur = stage.get(k);
+                    int size = output.size();
+                    long start = System.nanoTime();
+                    output = cur.getProcessor().process(context, output);
+                    int outputSize = output.size();
+                    stageMetrics.get(k).recordCall(System.nanoTime() - start, size, outputSize);
+                    if (output.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                if (cur.getAttributes().shouldInterruptFor(e)) {
+                    stage.forEach(node -> node.getState().set(TaskState.FAILED));
+                    context.getProcessorState().set(TaskState.FAILED);
+                    context.getWarnningAggregator().flush(task);
+                    task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.PROCESSOR_FAILED, e));
+                    return false;
+                }
+                context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.PROCESSOR_FAILED, e);
+                return true;
+            }
+            if (output.isNotEmpty()) {
+                pending.set(output.asList());
+                flush();
+            }
+            return true;
+        }
+
+        private boolean flush() {
+            int produced = pending.flush(e -> context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.PROCESSOR_TO_BUFFER_FAILED, e));
+            if (isTail && produced > 0) {
+                context.getProcessorCounter().incr(produced);
+            }
+            return pending.isEmpty();
+        }
+
+        /**
+         * 最后一个结束的调度单元将当前阶段各节点状态更新为上个阶段状态
+         */
+        private void finish() {
+            int remaining = running.decrementAndGet();
+            stage.forEach(node -> node.getWorkers().set(remaining));
+            if (remaining > 0) {
+                return;
+            }
+            TaskState state = preState.get();
+            stage.forEach(node -> node.getState().set(state));
+            if (isTail) {
+                context.getProcessorState().set(context.getReaderState());
+            }
+        }
+
+        @Override
+        protected void onDone(Throwable throwable) {
+            CooperativeScheduler.INSTANCE.unwatch(readBuffer, this);
+            CooperativeScheduler.INSTANCE.unwatch(writeBuffer, this);
+            // 通知下游当前阶段的状态变化
+            CooperativeScheduler.INSTANCE.signalProduced(writeBuffer);
+            if (throwable == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(throwable);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.context.TaskState;
+import com.aihuishou.pipeline.core.event.TaskFailedEvent;
+import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
+import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.reader.PipeReader;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.Getter;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 协作式读取执行器，reader 作为一个调度单元在 {@link CooperativeScheduler} 上执行
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@Getter
+public class CooperativeReaderExecutor<I, O> implements ReaderExecutor<I, O> {
+
+    private CompletableFuture<Void> future;
+
+    private CooperativeUnit unit;
+
+    @Override
+    public void start(PipeTask<I, O> task, PipeReader<I> reader) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getReaderState().get().canRun()) {
+            context.getReaderState().set(TaskState.RUNNING);
+        } else {
+            throw new TaskExecutionException("The reader can not run on this state!");
+        }
+        future = new CompletableFuture<>();
+        unit = new ReaderUnit<>(task, reader, future);
+        CooperativeScheduler.INSTANCE.watchProducer(context.getReadBuffer(), unit);
+        unit.submit();
+    }
+
+    @Override
+    public void stop(PipeTask<I, O> task, PipeReader<I> reader) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getReaderState().get().canStop()) {
+            context.getReaderState().set(TaskState.STOPPING);
+            Optional.ofNullable(unit).ifPresent(CooperativeUnit::wake);
+        } else {
+            throw new TaskExecutionException("The reader can not stop on this state!");
+        }
+    }
+
+    @Override
+    public void shutDown(PipeTask<I, O> task, PipeReader<I> reader) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getReaderState().get().canShutdown()) {
+            context.getReaderState().set(TaskState.TERMINATED);
+            Optional.ofNullable(unit).ifPresent(CooperativeUnit::wake);
+            Optional.ofNullable(future).ifPresent(f -> f.cancel(true));
+        } else {
+            throw new TaskExecutionException("The reader can not shutdown on this state!");
+        }
+    }
+
+    @Override
+    public void join(PipeTask<I, O> task, PipeReader<I> reader) {
+        future.join();
+    }
+
+    private static class ReaderUnit<I> extends CooperativeUnit {
+
+        private final PipeTask<I, ?> task;
+
+        private final TaskContext<I, ?> context;
+
+        private final PipeReader<I> reader;
+
+        private final TaskConfigAttributes attributes;
+
+        private final DataBuffer<I> readBuffer;
+
+        private final StageMetrics metrics;
+
+        private final PendingOutput<I> pending;
+
+        private final CompletableFuture<Void> future;
+
+        private boolean initialized;
+
+        private ReaderUnit(PipeTask<I, ?> task, PipeReader<I> reader, CompletableFuture<Void> future) {
+            this.task = task;
+            this.context = task.getContext();
+            this.reader = reader;
+            this.attributes = task.getReaderAttributes();
+            this.readBuffer = context.getReadBuffer();
+            this.metrics = context.getMetrics().getReader();
+            this.pending = new PendingOutput<>(readBuffer, attributes.getProduceTimeout().toNanos(), metrics);
+            this.future = future;
+        }
+
+        @Override
+        protected Slice runSlice(int maxChunks) {
+            if (!initialized) {
+                reader.initialize(context);
+                initialized = true;
+            }
+            for (int i = 0; i < maxChunks; i++) {
+                // 上次未写完的数据先写入，缓冲区仍满时等待下游消费后唤醒
+                if (!flush()) {
+                    wakeAfter(pending.remainingNanos());
+                    return Slice.WAIT;
+                }
+                if (context.getReaderState().get() != TaskState.RUNNING) {
+                    return Slice.DONE;
+                }
+                DataChunk<I> chunk;
+                long start = System.nanoTime();
+                try {
+                    chunk = reader.read(context);
+                    int size = chunk.size();
+                    metrics.recordCall(System.nanoTime() - start, size, size);
+                } catch (Exception e) {
+                    if (attributes.getInterruptFor().stream().anyMatch(t -> t.isAssignableFrom(e.getClass()))) {
+                        context.getReaderState().set(TaskState.FAILED);
+                        context.getWarnningAggregator().flush(task);
+                        task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.READER_FAILED, e));
+                        return Slice.DONE;
+                    } else {
+                        context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.READER_FAILED, e);
+                        continue;
+                    }
+                }
+                if (chunk.isEmpty()) {
+                    context.getReaderState().set(TaskState.TERMINATED);
+                    return Slice.DONE;
+                }
+                pending.set(chunk.asList());
+            }
+            if (!flush()) {
+                wakeAfter(pending.remainingNanos());
+                return Slice.WAIT;
+            }
+            return Slice.YIELD;
+        }
+
+        private boolean flush() {
+            int produced = pending.flush(e -> context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.READER_TO_BUFFER_FAILED, e));
+            if (produced > 0) {
+                context.getReaderCounter().incr(produced);
+            }
+            return pending.isEmpty();
+        }
+
+        @Override
+        protected void onDone(Throwable throwable) {
+            // 读完、失败、停止及关闭都在此销毁 reader
+            if (initialized) {
+                reader.destroy(context);
+            }
+            CooperativeScheduler.INSTANCE.unwatch(readBuffer, this);
+            // 通知下游 reader 已结束
+            CooperativeScheduler.INSTANCE.signalProduced(readBuffer);
+            if (throwable == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(throwable);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协作式调度器
+ * 所有协作式任务的阶段共享固定数量的工作线程（首次使用时按 {@link GlobalConfig#COOPERATIVE} 创建），
+ * 阶段每次被调度最多处理若干批次后让出线程，排到运行队列队尾，不同任务的阶段轮流执行；
+ * 没有数据可处理或缓冲区已满时阶段进入等待，由向同一缓冲区生产或消费的阶段唤醒，线程数只与 CPU 核数相关，与任务数无关
+ * @author ethan zhang
+ */
+@Slf4j
+public enum CooperativeScheduler {
+
+    INSTANCE;
+
+    private final BlockingQueue<CooperativeUnit> runQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * 缓冲区的消费者，缓冲区有数据写入或上游结束时唤醒
+     */
+    private final ConcurrentMap<DataBuffer<?>, Set<CooperativeUnit>> consumers = new ConcurrentHashMap<>();
+
+    /**
+     * 缓冲区的生产者，缓冲区有数据被消费时唤醒
+     */
+    private final ConcurrentMap<DataBuffer<?>, Set<CooperativeUnit>> producers = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final Thread[] workers;
+
+    {
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "cooperative-scheduler-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        workers = new Thread[Math.max(1, GlobalConfig.COOPERATIVE.getWorkers())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::work, "cooperative-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 工作线程数
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * 等待调度的阶段数
+     */
+    public int getQueuedCount() {
+        return runQueue.size();
+    }
+
+    void enqueue(CooperativeUnit unit) {
+        runQueue.add(unit);
+    }
+
+    void watchConsumer(DataBuffer<?> buffer, CooperativeUnit unit) {
+        watch(consumers, buffer, unit);
+    }
+
+    void watchProducer(DataBuffer<?> buffer, CooperativeUnit unit) {
+        watch(producers, buffer, unit);
+    }
+
+    void unwatch(DataBuffer<?> buffer, CooperativeUnit unit) {
+        unwatch(consumers, buffer, unit);
+        unwatch(producers, buffer, unit);
+    }
+
+    /**
+     * 缓冲区有数据写入或上游结束时调用，唤醒该缓冲区的消费者
+     */
+    void signalProduced(DataBuffer<?> buffer) {
+        signal(consumers, buffer);
+    }
+
+    /**
+     * 缓冲区有数据被消费时调用，唤醒该缓冲区的生产者
+     */
+    void signalConsumed(DataBuffer<?> buffer) {
+        signal(producers, buffer);
+    }
+
+    ScheduledFuture<?> wakeAfter(CooperativeUnit unit, long nanos) {
+        return timer.schedule(unit::wake, Math.max(0L, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void watch(ConcurrentMap<DataBuffer<?>, Set<CooperativeUnit>> watchers, DataBuffer<?> buffer, CooperativeUnit unit) {
+        if (buffer != null && buffer != DataBuffer.EMPTY_BUFFER) {
+            watchers.computeIfAbsent(buffer, k -> ConcurrentHashMap.newKeySet()).add(unit);
+        }
+    }
+
+    private void unwatch(ConcurrentMap<DataBuffer<?>, Set<CooperativeUnit>> watchers, DataBuffer<?> buffer, CooperativeUnit unit) {
+        if (buffer != null) {
+            watchers.computeIfPresent(buffer, (k, units) -> {
+                units.remove(unit);
+                return units.isEmpty() ? null : units;
+            });
+        }
+    }
+
+    private void signal(ConcurrentMap<DataBuffer<?>, Set<CooperativeUnit>> watchers, DataBuffer<?> buffer) {
+        Set<CooperativeUnit> units = watchers.get(buffer);
+        if (units != null) {
+            units.forEach(CooperativeUnit::wake);
+        }
+    }
+
+    private void work() {
+        while (true) {
+            CooperativeUnit unit;
+            try {
+                unit = runQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                unit.run();
+            } catch (Throwable e) {
+                log.error("Cooperative unit failed!", e);
+            }
+        }
+    }
+
+}
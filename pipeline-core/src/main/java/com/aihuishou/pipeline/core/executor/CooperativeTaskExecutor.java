@@ -0,0 +1,20 @@
+package com.aihuishou.pipeline.core.executor;
+
+import lombok.Getter;
+
+/**
+ * 协作式任务执行器
+ * 任务的各阶段作为调度单元在共享的 {@link CooperativeScheduler} 上轮流执行，缓冲区为空或已满时让出线程而不是阻塞等待，
+ * 适合大量并发的小任务；reader、processor、writer 中的阻塞调用仍会占用调度线程，I/O 密集的任务不宜使用
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@Getter
+public class CooperativeTaskExecutor<I, O> extends AbstractTaskExecutor<I, O> {
+
+    public CooperativeTaskExecutor() {
+        super(new CooperativeReaderExecutor<>(), new CooperativeProcessorExecutor<>(), new CooperativeWriterExecutor<>());
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 协作式调度单元，即在协作式调度器上执行的一个阶段工作者
+ * 每次调度执行一个时间片，返回让出、等待或结束；等待期间被唤醒（或等待超时）后重新进入运行队列
+ * @author ethan zhang
+ */
+abstract class CooperativeUnit {
+
+    private static final int IDLE = 0;
+
+    private static final int QUEUED = 1;
+
+    private static final int RUNNING = 2;
+
+    private static final int DONE = 3;
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /**
+     * 执行期间被唤醒，执行结束后若进入等待则立即重新调度，避免丢失唤醒
+     */
+    private volatile boolean notified;
+
+    private volatile long wakeAfterNanos = -1L;
+
+    private ScheduledFuture<?> timeout;
+
+    /**
+     * 时间片结果
+     */
+    enum Slice {
+
+        /**
+         * 仍有数据可处理，让出线程后排到队尾
+         */
+        YIELD,
+
+        /**
+         * 没有数据可处理或缓冲区已满，等待唤醒
+         */
+        WAIT,
+
+        /**
+         * 已结束
+         */
+        DONE
+
+    }
+
+    /**
+     * 执行一个时间片，最多处理 maxChunks 个批次
+     */
+    protected abstract Slice runSlice(int maxChunks);
+
+    /**
+     * 结束后调用，throwable 不为空时表示异常结束
+     */
+    protected abstract void onDone(Throwable throwable);
+
+    /**
+     * 开始调度
+     */
+    void submit() {
+        wake();
+    }
+
+    /**
+     * 唤醒，等待中的单元重新进入运行队列，正在执行的单元在本次时间片结束后不再等待
+     */
+    void wake() {
+        while (true) {
+            int s = state.get();
+            if (s == IDLE) {
+                if (state.compareAndSet(IDLE, QUEUED)) {
+                    CooperativeScheduler.INSTANCE.enqueue(this);
+                    return;
+                }
+            } else if (s == RUNNING) {
+                notified = true;
+                if (state.get() == RUNNING) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 本次等待最多持续 nanos，到期后自动唤醒
+     */
+    protected void wakeAfter(long nanos) {
+        long current = wakeAfterNanos;
+        wakeAfterNanos = current < 0L ? nanos : Math.min(current, nanos);
+    }
+
+    final void run() {
+        state.set(RUNNING);
+        notified = false;
+        wakeAfterNanos = -1L;
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        Slice slice;
+        try {
+            slice = runSlice(Math.max(1, GlobalConfig.COOPERATIVE.getSliceChunks()));
+        } catch (Throwable e) {
+            state.set(DONE);
+            onDone(e);
+            return;
+        }
+        switch (slice) {
+            case YIELD:
+                state.set(QUEUED);
+                CooperativeScheduler.INSTANCE.enqueue(this);
+                break;
+            case WAIT:
+                long wait = wakeAfterNanos < 0L ? maxWait() : Math.min(wakeAfterNanos, maxWait());
+                if (wait != Long.MAX_VALUE) {
+                    timeout = CooperativeScheduler.INSTANCE.wakeAfter(this, wait);
+                }
+                state.set(IDLE);
+                if (notified) {
+                    wake();
+                }
+                break;
+            default:
+                state.set(DONE);
+                onDone(null);
+        }
+    }
+
+    private static long maxWait() {
+        Duration maxWait = GlobalConfig.COOPERATIVE.getMaxWait();
+        return maxWait == null || maxWait.isNegative() || maxWait.isZero() ? Long.MAX_VALUE : maxWait.toNanos();
+    }
+
+}
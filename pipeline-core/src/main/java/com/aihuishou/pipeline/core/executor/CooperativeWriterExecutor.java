@@ -0,0 +1,195 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.context.TaskState;
+import com.aihuishou.pipeline.core.event.TaskFailedEvent;
+import com.aihuishou.pipeline.core.event.TaskFinishedEvent;
+import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
+import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import com.aihuishou.pipeline.core.writer.PipeWriter;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 协作式写入执行器，writer 作为一个调度单元在 {@link CooperativeScheduler} 上执行
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@Getter
+public class CooperativeWriterExecutor<I, O> implements WriterExecutor<I, O> {
+
+    private CompletableFuture<Void> future;
+
+    private CooperativeUnit unit;
+
+    @Override
+    public void start(PipeTask<I, O> task, PipeWriter<O> writer) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getWriterState().get().canRun()) {
+            context.getWriterState().set(TaskState.RUNNING);
+        } else {
+            throw new TaskExecutionException("The writer can not run on this state!");
+        }
+        future = new CompletableFuture<>();
+        unit = new WriterUnit<>(task, writer, future);
+        CooperativeScheduler.INSTANCE.watchConsumer(context.getWriteBuffer(), unit);
+        unit.submit();
+    }
+
+    @Override
+    public void stop(PipeTask<I, O> task, PipeWriter<O> writer) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getWriterState().get().canStop()) {
+            context.getWriterState().set(TaskState.STOPPING);
+            Optional.ofNullable(unit).ifPresent(CooperativeUnit::wake);
+        } else {
+            throw new TaskExecutionException("The writer can not stop on this state!");
+        }
+    }
+
+    @Override
+    public void shutDown(PipeTask<I, O> task, PipeWriter<O> writer) {
+        TaskContext<I, O> context = task.getContext();
+        if (context.getWriterState().get().canShutdown()) {
+            context.getWriterState().set(TaskState.TERMINATED);
+            Optional.ofNullable(unit).ifPresent(CooperativeUnit::wake);
+            Optional.ofNullable(future).ifPresent(f -> f.cancel(true));
+        } else if (!context.getWriterState().get().isFinalState()) {
+            // 上游先被终止时，当前阶段可能已自行结束，此时无需再终止
+            throw new TaskExecutionException("The writer can not shutdown on this state!");
+        }
+    }
+
+    @Override
+    public void join(PipeTask<I, O> task, PipeWriter<O> writer) {
+        future.join();
+    }
+
+    private static class WriterUnit<O> extends CooperativeUnit {
+
+        private final PipeTask<?, O> task;
+
+        private final TaskContext<?, O> context;
+
+        private final PipeWriter<O> writer;
+
+        private final TaskConfigAttributes attributes;
+
+        private final DataBuffer<O> writeBuffer;
+
+        private final StageMetrics metrics;
+
+        private final CompletableFuture<Void> future;
+
+        private boolean initialized;
+
+        private List<O> batch = new ArrayList<>();
+
+        private long lingerDeadline;
+
+        private long idleSince;
+
+        private WriterUnit(PipeTask<?, O> task, PipeWriter<O> writer, CompletableFuture<Void> future) {
+            this.task = task;
+            this.context = task.getContext();
+            this.writer = writer;
+            this.attributes = task.getWriterAttributes();
+            this.writeBuffer = context.getWriteBuffer();
+            this.metrics = context.getMetrics().getWriter();
+            this.future = future;
+        }
+
+        @Override
+        protected Slice runSlice(int maxChunks) {
+            if (!initialized) {
+                writer.initialize(context);
+                initialized = true;
+            }
+            if (idleSince != 0L) {
+                metrics.recordIdle(System.nanoTime() - idleSince);
+                idleSince = 0L;
+            }
+            for (int i = 0; i < maxChunks; i++) {
+                // 被终止时直接结束
+                if (context.getWriterState().get() == TaskState.TERMINATED) {
+                    return Slice.DONE;
+                }
+                TaskState upstream = context.getProcessorState().get();
+                List<O> input = writeBuffer.consumeIfPossible(attributes.getMaxConsumeCount() - batch.size());
+                if (!input.isEmpty()) {
+                    CooperativeScheduler.INSTANCE.signalConsumed(writeBuffer);
+                    if (batch.isEmpty()) {
+                        lingerDeadline = System.nanoTime() + attributes.getMaxLinger().toNanos();
+                    }
+                    batch.addAll(input);
+                } else if (batch.isEmpty()) {
+                    if (upstream != TaskState.RUNNING && writeBuffer.isEmpty()) {
+                        finish();
+                        return Slice.DONE;
+                    }
+                    idleSince = System.nanoTime();
+                    return Slice.WAIT;
+                }
+                long remaining = lingerDeadline - System.nanoTime();
+                if (batch.size() < Math.min(attributes.getMinBatchSize(), attributes.getMaxConsumeCount())
+                        && remaining > 0L && upstream == TaskState.RUNNING) {
+                    wakeAfter(remaining);
+                    idleSince = System.nanoTime();
+                    return Slice.WAIT;
+                }
+                List<O> output = batch;
+                batch = new ArrayList<>();
+                try {
+                    long start = System.nanoTime();
+                    int written = writer.write(context, DataChunk.wrap(output));
+                    metrics.recordCall(System.nanoTime() - start, output.size(), written);
+                    context.getWriterCounter().incr(written);
+                } catch (Exception e) {
+                    if (attributes.shouldInterruptFor(e)) {
+                        context.getWriterState().set(TaskState.FAILED);
+                        writer.destroy(context);
+                        context.getWarnningAggregator().flush(task);
+                        task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.WRITER_FAILED, e));
+                        return Slice.DONE;
+                    } else {
+                        context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.WRITER_FAILED, e);
+                    }
+                }
+            }
+            return Slice.YIELD;
+        }
+
+        private void finish() {
+            context.getWriterState().set(context.getProcessorState());
+            if (context.getWriterState().get() == TaskState.TERMINATED || context.getWriterState().get() == TaskState.FAILED) {
+                writer.destroy(context);
+            }
+            if (context.isTerminated()) {
+                context.getWarnningAggregator().flush(task);
+                task.getDispatcher().dispatch(new TaskFinishedEvent(task));
+            }
+        }
+
+        @Override
+        protected void onDone(Throwable throwable) {
+            CooperativeScheduler.INSTANCE.unwatch(writeBuffer, this);
+            if (throwable == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(throwable);
+            }
+        }
+
+    }
+
+}
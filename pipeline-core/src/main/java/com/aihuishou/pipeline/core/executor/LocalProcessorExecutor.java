@@ -9,25 +9,21 @@ import com.aihuishou.pipeline.core.event.TaskFailedEvent;
 import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
 import com.aihuishou.pipeline.core.event.dispatcher.TaskEventDispatcher;
 import com.aihuishou.pipeline.core.exception.TaskExecutionException;
-import com.aihuishou.pipeline.core.processor.PipeProcessor;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
 import com.aihuishou.pipeline.core.processor.PipeProcessorChain;
 import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+import com.aihuishou.pipeline.core.strategy.IdleStrategy;
 import com.aihuishou.pipeline.core.task.PipeTask;
-import com.aihuishou.pipeline.core.utils.BatchUtil;
-import com.aihuishou.pipeline.core.utils.Functions;
 import com.aihuishou.pipeline.core.utils.ThreadUtil;
-import com.github.rholder.retry.RetryException;
-import com.github.rholder.retry.Retryer;
 import lombok.Getter;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 @Getter
 public class LocalProcessorExecutor<I, O> implements ProcessorExecutor<I, O> {
@@ -50,86 +46,149 @@ public class LocalProcessorExecutor<I, O> implements ProcessorExecutor<I, O> {
             throw new TaskExecutionException("The processor can not run on this state!");
         }
         TaskEventDispatcher dispatcher = task.getDispatcher();
-        List<CompletableFuture<Void>> futures = new ArrayList<>(processorChain.length());
-        LinkedList<PipeProcessorNode> nodes = processorChain.getNodes();
-        // 遍历执行 processor
-        for (int i = 0; i < nodes.size(); i++) {
-            // 当前节点是否为头节点
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        // 将融合的节点归入同一阶段，每个阶段由一组工作线程执行
+        List<List<PipeProcessorNode>> stages = groupStages(processorChain.getNodes());
+        // 遍历执行各阶段
+        for (int i = 0; i < stages.size(); i++) {
+            // 当前阶段是否为头阶段
             boolean isHead = i == 0;
-            // 当前节点是否为尾结点
-            boolean isTail = i == nodes.size() - 1;
-            // 当前节点
-            PipeProcessorNode cur = nodes.get(i);
-            PipeProcessor processor = cur.getProcessor();
-            TaskConfigAttributes attributes = TaskConfigAttributes.fromClass(processor.getClass());
-            Retryer<Boolean> retryer = attributes.buidlRetryer();
-            // 上个节点
-            PipeProcessorNode pre = isHead ? null : nodes.get(i - 1);
-            // 读取缓冲区，头节点取 reader buffer，非头节点取上个节点的 buffer
+            // 当前阶段是否为尾阶段
+            boolean isTail = i == stages.size() - 1;
+            // 当前阶段的节点，依次处理同一批数据
+            List<PipeProcessorNode> stage = stages.get(i);
+            PipeProcessorNode first = stage.get(0);
+            PipeProcessorNode last = stage.get(stage.size() - 1);
+            // 消费、空闲策略及并行度取阶段首节点配置
+            TaskConfigAttributes attributes = first.getAttributes();
+            long produceTimeout = last.getAttributes().getProduceTimeout().toNanos();
+            // 上个阶段的尾节点
+            PipeProcessorNode pre = isHead ? null : stages.get(i - 1).get(stages.get(i - 1).size() - 1);
+            // 读取缓冲区，头阶段取 reader buffer，非头阶段取上个阶段尾节点的 buffer
             DataBuffer readBuffer = isHead ? context.getReadBuffer() : pre.getBuffer();
-            // 写出缓冲区，尾结点取 wirter buffer，非尾结点取当前节点的 buffer
-            DataBuffer writeBuffer = isTail ? context.getWriteBuffer() : cur.getBuffer();
-            // 设置当前节点状态为运行中
-            cur.getState().set(TaskState.RUNNING);
-            futures.add(CompletableFuture.runAsync(() -> {
+            // 写出缓冲区，尾阶段取 wirter buffer，非尾阶段取当前阶段尾节点的 buffer
+            DataBuffer writeBuffer = isTail ? context.getWriteBuffer() : last.getBuffer();
+            // 当前阶段各节点的指标，空闲时间计入首节点，阻塞时间计入尾节点
+            List<StageMetrics> stageMetrics = stage.stream()
+                    .map(node -> context.getMetrics().getProcessor(processorChain.getNodes().indexOf(node)))
+                    .collect(Collectors.toList());
+            StageMetrics firstMetrics = stageMetrics.get(0);
+            StageMetrics lastMetrics = stageMetrics.get(stageMetrics.size() - 1);
+            // 当前阶段并行度，多个工作线程竞争消费同一个读取缓冲区，开启自动伸缩时在并行度与最大并行度之间变化
+            int parallelism = Math.max(1, attributes.getParallelism());
+            StageWorkers workers = new StageWorkers(executor, stage, parallelism,
+                    attributes.isAutoScaling() ? attributes.getMaxParallelism() : parallelism);
+            // 设置当前阶段各节点状态为运行中
+            setState(stage, TaskState.RUNNING);
+            workers.start(() -> {
+                IdleStrategy idleStrategy = attributes.getIdleStrategy().newInstance();
                 while (true) {
-                    // 上个节点状态，头节点取 reader state，非头节点取上个节点的 state
+                    // 工作线程数超过目标值时（自动缩容），当前工作线程退出
+                    if (workers.tryRetire()) {
+                        return;
+                    }
+                    // 上个阶段状态，头阶段取 reader state，非头阶段取上个阶段尾节点的 state
                     TaskState preState = isHead ? context.getReaderState().get() : pre.getState().get();
-                    // 若上个节点的状态不是 running 并且读取缓冲区为空，跳出循环
+                    // 若上个阶段的状态不是 running 并且读取缓冲区为空，跳出循环
                     if (preState != TaskState.RUNNING && readBuffer.isEmpty()) {
                         break;
                     }
-                    // 若当前线程中断，则将当前节点及 processor 状态设为 terminated，任务终止
+                    // 若当前线程中断，则将当前阶段及 processor 状态设为 terminated，任务终止
                     if (ThreadUtil.isCurThreadInterrupted()) {
-                        cur.getState().set(TaskState.TERMINATED);
+                        setState(stage, TaskState.TERMINATED);
                         context.getProcessorState().set(TaskState.TERMINATED);
                         return;
                     }
+                    // 若同阶段的其他工作线程已失败或被终止，当前工作线程随之退出
+                    TaskState curState = last.getState().get();
+                    if (curState == TaskState.FAILED || curState == TaskState.TERMINATED) {
+                        return;
+                    }
                     DataChunk output;
+                    // 当前正在执行的节点，用于确定异常处理配置
+                    PipeProcessorNode cur = first;
                     try {
-                        List input = readBuffer.consumeIfPossible(attributes.getMaxConsumeCount());
+                        // 攒批消费，缓冲区为空时按空闲策略等待，之后重新检查上个阶段状态
+                        List input = BufferConsumer.consume(readBuffer, attributes, idleStrategy, firstMetrics,
+                                () -> (isHead ? context.getReaderState().get() : pre.getState().get()) == TaskState.RUNNING);
                         if (CollectionUtils.isEmpty(input)) {
-                            Thread.yield();
                             continue;
-                        } else {
-                            output = processor.process(context, DataChunk.of(input));
+                        }
+                        output = DataChunk.wrap(input);
+                        // 阶段内的节点在同一线程中依次处理，无需经过缓冲区
+                        for (int k = 0; k < stage.size(); k++) {
+                            cur = stage.get(k);
+                            int size = output.size();
+                            long start = System.nanoTime();
+                            output = cur.getProcessor().process(context, output);
+                            // 延迟转换在取大小时执行，计入当前节点耗时
+                            int outputSize = output.size();
+                            stageMetrics.get(k).recordCall(System.nanoTime() - start, size, outputSize);
+                            if (output.isEmpty()) {
+                                break;
+                            }
                         }
                     } catch (Exception e) {
-                        if (attributes.shouldInterruptFor(e)) {
-                            // 若当前异常需要中断任务，则将当前节点及 processor 状态设为 failed，发布任务失败事件
-                            cur.getState().set(TaskState.FAILED);
+                        if (cur.getAttributes().shouldInterruptFor(e)) {
+                            // 若当前异常需要中断任务，则将当前阶段及 processor 状态设为 failed，发布任务失败事件
+                            setState(stage, TaskState.FAILED);
                             context.getProcessorState().set(TaskState.FAILED);
+                            context.getWarnningAggregator().flush(task);
                             dispatcher.dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.PROCESSOR_FAILED, e));
                             return;
                         } else {
                             // 若当前异常不需要中断任务，则发布任务警告事件，继续执行任务
-                            dispatcher.dispatch(new TaskWarnningEvent(task, TaskWarnningEvent.Cause.PROCESSOR_FAILED, e));
+                            context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.PROCESSOR_FAILED, e);
                             continue;
                         }
                     }
                     if (output.isNotEmpty()) {
-                        output.forEach(o -> {
-                            try {
-                                // 尝试将数据写入缓冲区，若当前节点为尾结点，则更新 processor 进度
-                                if (retryer.call(() -> writeBuffer.tryProduce(o)) && isTail) {
-                                    context.getProcessorCounter().incr();
-                                }
-                            } catch (ExecutionException | RetryException e) {
-                                dispatcher.dispatch(new TaskWarnningEvent(task, TaskWarnningEvent.Cause.PROCESSOR_TO_BUFFER_FAILED, e));
-                            }
-                        });
+                        // 将数据整批写入缓冲区，若当前阶段为尾阶段，则更新 processor 进度
+                        int produced = BufferProducer.produce(writeBuffer, output.asList(), idleStrategy, produceTimeout, lastMetrics,
+                                e -> context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.PROCESSOR_TO_BUFFER_FAILED, e));
+                        if (isTail) {
+                            context.getProcessorCounter().incr(produced);
+                        }
                     }
                 }
-                // 将当前节点状态更新为上个节点状态
+                // 仍有工作线程未处理完，由最后一个退出的工作线程更新状态
+                if (!workers.finish()) {
+                    return;
+                }
+                // 将当前阶段各节点状态更新为上个阶段状态
                 TaskState preState = isHead ? context.getReaderState().get() : pre.getState().get();
-                cur.getState().set(preState);
+                setState(stage, preState);
                 if (isTail) {
-                    // 若当前节点为尾结点，则将 processor 状态更新为与 reader 一致
+                    // 若当前阶段为尾阶段，则将 processor 状态更新为与 reader 一致
                     context.getProcessorState().set(context.getReaderState());
                 }
-            }, executor));
+            });
+            if (workers.getMaxWorkers() > workers.getMinWorkers()) {
+                new ProcessorAutoScaler(task, last, readBuffer, firstMetrics, lastMetrics, workers).start();
+            }
+            futures.add(workers.getCompletion());
         }
-        future = BatchUtil.merge(futures, Functions.firstOneBinaryOperator());
+        future = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 按融合关系将节点划分为阶段，融合的节点与上个节点归入同一阶段
+     */
+    @SuppressWarnings("rawtypes")
+    private List<List<PipeProcessorNode>> groupStages(List<PipeProcessorNode> nodes) {
+        List<List<PipeProcessorNode>> stages = new ArrayList<>();
+        for (PipeProcessorNode node : nodes) {
+            if (stages.isEmpty() || !node.isFused()) {
+                stages.add(new ArrayList<>());
+            }
+            stages.get(stages.size() - 1).add(node);
+        }
+        return stages;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void setState(List<PipeProcessorNode> stage, TaskState state) {
+        stage.forEach(node -> node.getState().set(state));
     }
 
     @Override
@@ -8,16 +8,15 @@ import com.aihuishou.pipeline.core.context.TaskState;
 import com.aihuishou.pipeline.core.event.TaskFailedEvent;
 import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
 import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
 import com.aihuishou.pipeline.core.reader.PipeReader;
+import com.aihuishou.pipeline.core.strategy.IdleStrategy;
 import com.aihuishou.pipeline.core.task.PipeTask;
-import com.github.rholder.retry.RetryException;
-import com.github.rholder.retry.Retryer;
 import lombok.Getter;
 
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
 /**
@@ -45,48 +44,57 @@ public class LocalReaderExecutor<I, O> implements ReaderExecutor<I, O> {
         } else {
             throw new TaskExecutionException("The reader can not run on this state!");
         }
-        TaskConfigAttributes attributes = TaskConfigAttributes.fromClass(reader.getClass());
-        Retryer<Boolean> retryer = attributes.buidlRetryer();
+        TaskConfigAttributes attributes = task.getReaderAttributes();
+        long produceTimeout = attributes.getProduceTimeout().toNanos();
         DataBuffer<I> readBuffer = context.getReadBuffer();
+        StageMetrics metrics = context.getMetrics().getReader();
         future = CompletableFuture.runAsync(() -> {
+            IdleStrategy idleStrategy = attributes.getIdleStrategy().newInstance();
             reader.initialize(context);
-            while (context.getReaderState().get() == TaskState.RUNNING) {
-                if (Thread.currentThread().isInterrupted()) {
-                    context.getReaderState().set(TaskState.TERMINATED);
-                    return;
-                }
-                DataChunk<I> chunk;
-                try {
-                    chunk = reader.read(context);
-                } catch (Exception e) {
-                    Set<Class<? extends Throwable>> interruptFor = attributes.getInterruptFor();
-                    if (interruptFor.stream().anyMatch(t -> t.isAssignableFrom(e.getClass()))) {
-                        context.getReaderState().set(TaskState.FAILED);
-                        reader.destroy(context);
-                        task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.READER_FAILED, e));
-                        return;
-                    } else {
-                        task.getDispatcher().dispatch(new TaskWarnningEvent(task, TaskWarnningEvent.Cause.READER_FAILED, e));
-                        continue;
-                    }
-                }
-                if (chunk.isEmpty()) {
-                    context.getReaderState().set(TaskState.TERMINATED);
-                    reader.destroy(context);
+            // 读完、失败、中断、停止及关闭都会退出循环，统一在此销毁 reader
+            try {
+                run(task, reader, attributes, idleStrategy, produceTimeout, readBuffer, metrics);
+            } finally {
+                reader.destroy(context);
+            }
+        }, executor);
+    }
+
+    private void run(PipeTask<I, O> task, PipeReader<I> reader, TaskConfigAttributes attributes, IdleStrategy idleStrategy,
+                     long produceTimeout, DataBuffer<I> readBuffer, StageMetrics metrics) {
+        TaskContext<I, O> context = task.getContext();
+        while (context.getReaderState().get() == TaskState.RUNNING) {
+            if (Thread.currentThread().isInterrupted()) {
+                context.getReaderState().set(TaskState.TERMINATED);
+                return;
+            }
+            DataChunk<I> chunk;
+            long start = System.nanoTime();
+            try {
+                chunk = reader.read(context);
+                int size = chunk.size();
+                metrics.recordCall(System.nanoTime() - start, size, size);
+            } catch (Exception e) {
+                Set<Class<? extends Throwable>> interruptFor = attributes.getInterruptFor();
+                if (interruptFor.stream().anyMatch(t -> t.isAssignableFrom(e.getClass()))) {
+                    context.getReaderState().set(TaskState.FAILED);
+                    context.getWarnningAggregator().flush(task);
+                    task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.READER_FAILED, e));
                     return;
                 } else {
-                    for (I i : chunk) {
-                        try {
-                            if (retryer.call(() -> readBuffer.tryProduce(i))) {
-                                context.getReaderCounter().incr();
-                            }
-                        } catch (ExecutionException | RetryException e) {
-                            task.getDispatcher().dispatch(new TaskWarnningEvent(task, TaskWarnningEvent.Cause.READER_TO_BUFFER_FAILED, e));
-                        }
-                    }
+                    context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.READER_FAILED, e);
+                    continue;
                 }
             }
-        }, executor);
+            if (chunk.isEmpty()) {
+                context.getReaderState().set(TaskState.TERMINATED);
+                return;
+            } else {
+                int produced = BufferProducer.produce(readBuffer, chunk.asList(), idleStrategy, produceTimeout, metrics,
+                        e -> context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.READER_TO_BUFFER_FAILED, e));
+                context.getReaderCounter().incr(produced);
+            }
+        }
     }
 
     @Override
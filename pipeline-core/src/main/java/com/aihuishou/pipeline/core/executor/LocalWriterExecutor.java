@@ -9,6 +9,8 @@ import com.aihuishou.pipeline.core.event.TaskFailedEvent;
 import com.aihuishou.pipeline.core.event.TaskFinishedEvent;
 import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
 import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.strategy.IdleStrategy;
 import com.aihuishou.pipeline.core.task.PipeTask;
 import com.aihuishou.pipeline.core.writer.PipeWriter;
 import lombok.Getter;
@@ -45,8 +47,10 @@ public class LocalWriterExecutor<I, O> implements WriterExecutor<I, O> {
             throw new TaskExecutionException("The writer can not run on this state!");
         }
         DataBuffer<O> writeBuffer = context.getWriteBuffer();
-        TaskConfigAttributes attributes = TaskConfigAttributes.fromClass(writer.getClass());
+        TaskConfigAttributes attributes = task.getWriterAttributes();
+        StageMetrics metrics = context.getMetrics().getWriter();
         future = CompletableFuture.runAsync(() -> {
+            IdleStrategy idleStrategy = attributes.getIdleStrategy().newInstance();
             writer.initialize(context);
             while (context.getProcessorState().get() == TaskState.RUNNING || !writeBuffer.isEmpty()) {
                 if (Thread.currentThread().isInterrupted()) {
@@ -54,20 +58,24 @@ public class LocalWriterExecutor<I, O> implements WriterExecutor<I, O> {
                     return;
                 }
                 try {
-                    List<O> output = writeBuffer.consumeIfPossible(attributes.getMaxConsumeCount());
-                    if (CollectionUtils.isEmpty(output)) {
-                        Thread.yield();
-                    } else {
-                        context.getWriterCounter().incr(writer.write(context, DataChunk.of(output)));
+                    // 攒批消费，缓冲区为空时按空闲策略等待，之后重新检查 processor 状态
+                    List<O> output = BufferConsumer.consume(writeBuffer, attributes, idleStrategy, metrics,
+                            () -> context.getProcessorState().get() == TaskState.RUNNING);
+                    if (CollectionUtils.isNotEmpty(output)) {
+                        long start = System.nanoTime();
+                        int written = writer.write(context, DataChunk.wrap(output));
+                        metrics.recordCall(System.nanoTime() - start, output.size(), written);
+                        context.getWriterCounter().incr(written);
                     }
                 } catch (Exception e) {
                     if (attributes.shouldInterruptFor(e)) {
                         context.getWriterState().set(TaskState.FAILED);
                         writer.destroy(context);
+                        context.getWarnningAggregator().flush(task);
                         task.getDispatcher().dispatch(new TaskFailedEvent(task, TaskFailedEvent.Cause.WRITER_FAILED, e));
                         return;
                     } else {
-                        task.getDispatcher().dispatch(new TaskWarnningEvent(task, TaskWarnningEvent.Cause.WRITER_FAILED, e));
+                        context.getWarnningAggregator().warn(task, TaskWarnningEvent.Cause.WRITER_FAILED, e);
                     }
                 }
             }
@@ -76,6 +84,7 @@ public class LocalWriterExecutor<I, O> implements WriterExecutor<I, O> {
                 writer.destroy(context);
             }
             if (context.isTerminated()) {
+                context.getWarnningAggregator().flush(task);
                 task.getDispatcher().dispatch(new TaskFinishedEvent(task));
             }
         }, executor);
@@ -0,0 +1,81 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.exception.TaskExecutionException;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 待写入缓冲区的数据（协作式调度使用）
+ * 缓冲区已满时不阻塞线程，剩余部分留到下次调度继续写入，超过等待时间后交由 onFailure 处理，与 {@link BufferProducer} 语义一致
+ * @param <T> 数据类型
+ * @author ethan zhang
+ */
+class PendingOutput<T> {
+
+    private final DataBuffer<T> buffer;
+
+    private final long timeoutNanos;
+
+    private final StageMetrics metrics;
+
+    private List<T> data = Collections.emptyList();
+
+    private int produced;
+
+    private long start;
+
+    PendingOutput(DataBuffer<T> buffer, long timeoutNanos, StageMetrics metrics) {
+        this.buffer = buffer;
+        this.timeoutNanos = timeoutNanos;
+        this.metrics = metrics;
+    }
+
+    void set(List<T> data) {
+        this.data = data;
+        this.produced = 0;
+        this.start = System.nanoTime();
+    }
+
+    boolean isEmpty() {
+        return produced >= data.size();
+    }
+
+    /**
+     * 距离超时的剩余时间
+     */
+    long remainingNanos() {
+        return Math.max(0L, start + timeoutNanos - System.nanoTime());
+    }
+
+    /**
+     * 非阻塞地写入剩余部分，返回本次写入的数量
+     */
+    int flush(Consumer<Exception> onFailure) {
+        if (isEmpty()) {
+            return 0;
+        }
+        int n = buffer.tryProduceAll(data.subList(produced, data.size()), 0L, TimeUnit.NANOSECONDS);
+        produced += n;
+        if (n > 0) {
+            CooperativeScheduler.INSTANCE.signalProduced(buffer);
+        }
+        long now = System.nanoTime();
+        if (isEmpty()) {
+            metrics.recordBlocked(now - start);
+            data = Collections.emptyList();
+        } else if (now - start - timeoutNanos >= 0L) {
+            metrics.recordBlocked(now - start);
+            onFailure.accept(new TaskExecutionException(String.format("Produce to buffer timeout, %d of %d elements are discarded!",
+                    data.size() - produced, data.size())));
+            data = Collections.emptyList();
+            produced = 0;
+        }
+        return n;
+    }
+
+}
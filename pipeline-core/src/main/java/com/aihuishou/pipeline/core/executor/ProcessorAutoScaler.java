@@ -0,0 +1,137 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import com.aihuishou.pipeline.core.context.TaskState;
+import com.aihuishou.pipeline.core.event.TaskScaledEvent;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * processor 阶段自动伸缩器
+ * 定期采样输入缓冲区占用率、写出阻塞时间占比及等待输入的空闲时间占比：
+ * 输入积压且下游不阻塞时扩容，输入空闲或下游阻塞时缩容，连续多次采样满足条件且超过冷却时间才伸缩，避免抖动
+ * @author ethan zhang
+ */
+@Slf4j
+class ProcessorAutoScaler {
+
+    private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "processor-auto-scaler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PipeTask<?, ?> task;
+
+    @SuppressWarnings("rawtypes")
+    private final PipeProcessorNode last;
+
+    private final DataBuffer<?> readBuffer;
+
+    private final StageMetrics firstMetrics;
+
+    private final StageMetrics lastMetrics;
+
+    private final StageWorkers workers;
+
+    private long lastNanos;
+
+    private long lastBlocked;
+
+    private long lastIdle;
+
+    private int upStreak;
+
+    private int downStreak;
+
+    private long cooldownUntil;
+
+    private ScheduledFuture<?> future;
+
+    @SuppressWarnings("rawtypes")
+    ProcessorAutoScaler(PipeTask<?, ?> task, PipeProcessorNode last, DataBuffer<?> readBuffer,
+                        StageMetrics firstMetrics, StageMetrics lastMetrics, StageWorkers workers) {
+        this.task = task;
+        this.last = last;
+        this.readBuffer = readBuffer;
+        this.firstMetrics = firstMetrics;
+        this.lastMetrics = lastMetrics;
+        this.workers = workers;
+    }
+
+    void start() {
+        long period = Math.max(GlobalConfig.PROCESSOR.getScaleSamplePeriod().toNanos(), TimeUnit.MILLISECONDS.toNanos(10));
+        lastNanos = System.nanoTime();
+        lastBlocked = lastMetrics.getBlockedNanos();
+        lastIdle = firstMetrics.getIdleNanos();
+        cooldownUntil = lastNanos;
+        future = SCHEDULER.scheduleAtFixedRate(this::sample, period, period, TimeUnit.NANOSECONDS);
+        // 阶段结束后停止采样
+        workers.getCompletion().whenComplete((v, e) -> future.cancel(false));
+    }
+
+    private void sample() {
+        try {
+            if (last.getState().get() != TaskState.RUNNING) {
+                return;
+            }
+            long now = System.nanoTime();
+            long blocked = lastMetrics.getBlockedNanos();
+            long idle = firstMetrics.getIdleNanos();
+            double capacity = (double) Math.max(1L, now - lastNanos) * Math.max(1, workers.getWorkers());
+            double blockedRatio = Math.min(1D, (blocked - lastBlocked) / capacity);
+            double idleRatio = Math.min(1D, (idle - lastIdle) / capacity);
+            double fillRatio = readBuffer.fillRatio();
+            lastNanos = now;
+            lastBlocked = blocked;
+            lastIdle = idle;
+
+            GlobalConfig.Processor config = GlobalConfig.PROCESSOR;
+            int target = workers.getTarget();
+            if (fillRatio >= config.getScaleUpFillRatio() && blockedRatio < config.getScaleDownBlockedRatio() && target < workers.getMaxWorkers()) {
+                upStreak++;
+                downStreak = 0;
+            } else if (target > workers.getMinWorkers() && (blockedRatio >= config.getScaleDownBlockedRatio()
+                    || (fillRatio <= config.getScaleDownFillRatio() && idleRatio >= config.getScaleDownIdleRatio()))) {
+                downStreak++;
+                upStreak = 0;
+            } else {
+                upStreak = 0;
+                downStreak = 0;
+            }
+            if (now - cooldownUntil < 0) {
+                return;
+            }
+            boolean scaled = false;
+            if (upStreak >= config.getScaleSamples()) {
+                scaled = workers.scaleUp();
+            } else if (downStreak >= config.getScaleSamples()) {
+                scaled = workers.scaleDown();
+            }
+            if (scaled) {
+                upStreak = 0;
+                downStreak = 0;
+                cooldownUntil = now + cooldown();
+                task.getDispatcher().dispatch(new TaskScaledEvent(task, firstMetrics.getName(), target, workers.getTarget(),
+                        fillRatio, blockedRatio, idleRatio));
+            }
+        } catch (Exception e) {
+            log.error("Processor auto scale failed!", e);
+        }
+    }
+
+    private static long cooldown() {
+        Duration cooldown = GlobalConfig.PROCESSOR.getScaleCooldown();
+        return cooldown == null || cooldown.isNegative() ? 0L : cooldown.toNanos();
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阶段工作线程组
+ * 同一阶段的工作线程竞争消费同一个读取缓冲区，运行期间可以追加工作线程，也可以调低目标线程数，由多出的工作线程在下次循环时自行退出
+ * @author ethan zhang
+ */
+@SuppressWarnings("rawtypes")
+class StageWorkers {
+
+    private final Executor executor;
+
+    private final List<PipeProcessorNode> stage;
+
+    private final int minWorkers;
+
+    private final int maxWorkers;
+
+    /**
+     * 仍在消费循环中的工作线程数，最后一个正常退出的工作线程负责更新节点状态
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * 已提交且尚未结束的工作线程数，归零时阶段结束
+     */
+    private final AtomicInteger alive = new AtomicInteger();
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private volatile int target;
+
+    private Runnable worker;
+
+    StageWorkers(Executor executor, List<PipeProcessorNode> stage, int minWorkers, int maxWorkers) {
+        this.executor = executor;
+        this.stage = stage;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = Math.max(minWorkers, maxWorkers);
+        this.target = minWorkers;
+    }
+
+    /**
+     * 启动最小数量的工作线程
+     */
+    void start(Runnable worker) {
+        this.worker = worker;
+        running.set(minWorkers);
+        alive.set(minWorkers);
+        updateGauge();
+        for (int i = 0; i < minWorkers; i++) {
+            submit();
+        }
+    }
+
+    /**
+     * 追加一个工作线程，阶段已结束或已达上限时返回 false
+     */
+    boolean scaleUp() {
+        if (target >= maxWorkers || !increment(alive)) {
+            return false;
+        }
+        if (!increment(running)) {
+            exit(null);
+            return false;
+        }
+        target++;
+        updateGauge();
+        if (!submit()) {
+            target--;
+            running.decrementAndGet();
+            updateGauge();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 调低目标线程数，多出的工作线程在下次循环时退出，已达下限时返回 false
+     */
+    boolean scaleDown() {
+        if (target <= minWorkers) {
+            return false;
+        }
+        target--;
+        return true;
+    }
+
+    /**
+     * 工作线程数超过目标值时，当前工作线程退出消费循环
+     */
+    boolean tryRetire() {
+        int r;
+        while ((r = running.get()) > target) {
+            if (running.compareAndSet(r, r - 1)) {
+                updateGauge();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 工作线程正常退出消费循环，返回是否为最后一个
+     */
+    boolean finish() {
+        int remaining = running.decrementAndGet();
+        updateGauge();
+        return remaining == 0;
+    }
+
+    int getWorkers() {
+        return running.get();
+    }
+
+    int getTarget() {
+        return target;
+    }
+
+    int getMinWorkers() {
+        return minWorkers;
+    }
+
+    int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    private boolean submit() {
+        try {
+            CompletableFuture.runAsync(worker, executor).whenComplete((v, e) -> exit(e));
+            return true;
+        } catch (RuntimeException e) {
+            exit(null);
+            return false;
+        }
+    }
+
+    private void exit(Throwable throwable) {
+        if (throwable != null) {
+            completion.completeExceptionally(throwable);
+        }
+        if (alive.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+    }
+
+    private void updateGauge() {
+        int workers = running.get();
+        stage.forEach(node -> node.getWorkers().set(workers));
+    }
+
+    private static boolean increment(AtomicInteger counter) {
+        int c;
+        while ((c = counter.get()) > 0) {
+            if (counter.compareAndSet(c, c + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.utils.VirtualThreadUtil;
+import lombok.Getter;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 虚拟线程任务执行器
+ * 执行方式与 {@link LocalTaskExecutor} 相同，但每个阶段的工作线程都是虚拟线程，缓冲区上的阻塞等待（基于 {@link java.util.concurrent.locks.ReentrantLock}
+ * 及 {@link java.util.concurrent.locks.LockSupport}）只挂起虚拟线程，适合大量 I/O 密集的任务；Java 21 以下退化为共享的缓存线程池
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@Getter
+public class VirtualThreadTaskExecutor<I, O> extends AbstractTaskExecutor<I, O> {
+
+    public VirtualThreadTaskExecutor() {
+        this(VirtualThreadUtil.executor());
+    }
+
+    private VirtualThreadTaskExecutor(Executor executor) {
+        super(new LocalReaderExecutor<>(executor), new LocalProcessorExecutor<>(executor), new LocalWriterExecutor<>(executor));
+    }
+
+}
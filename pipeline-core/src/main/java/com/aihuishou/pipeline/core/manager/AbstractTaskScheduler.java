@@ -1,5 +1,7 @@
 package com.aihuishou.pipeline.core.manager;
 
+import com.aihuishou.pipeline.core.task.PipeTask;
+
 public abstract class AbstractTaskScheduler {
 
     protected TaskRegistry taskRegistry;
@@ -12,4 +14,14 @@ public abstract class AbstractTaskScheduler {
 
     protected abstract void shutdown();
 
+    /**
+     * 任务注册后开始调度
+     */
+    protected abstract void schedule(PipeTask<?, ?> task);
+
+    /**
+     * 任务注销后停止调度
+     */
+    protected abstract void cancel(PipeTask<?, ?> task);
+
 }
@@ -0,0 +1,120 @@
+package com.aihuishou.pipeline.core.manager;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.metrics.BottleneckReport;
+import com.aihuishou.pipeline.core.metrics.StageMetrics;
+import com.aihuishou.pipeline.core.metrics.TaskMetrics;
+import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+import com.aihuishou.pipeline.core.task.PipeTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 瓶颈分析器，每次分析取与上次分析之间的指标增量，每个任务一个实例
+ * @author ethan zhang
+ */
+class BottleneckAnalyzer {
+
+    /**
+     * 阻塞占比超过该值视为受到背压
+     */
+    private static final double BACKPRESSURE_THRESHOLD = 0.2D;
+
+    /**
+     * 繁忙占比低于该值不视为瓶颈
+     */
+    private static final double MIN_BUSY_RATIO = 0.05D;
+
+    private final PipeTask<?, ?> task;
+
+    private long lastNanos = System.nanoTime();
+
+    private long[] lastBusy;
+
+    private long[] lastBlocked;
+
+    private long[] lastIdle;
+
+    BottleneckAnalyzer(PipeTask<?, ?> task) {
+        this.task = task;
+    }
+
+    @SuppressWarnings("rawtypes")
+    synchronized BottleneckReport analyze() {
+        TaskContext<?, ?> context = task.getContext();
+        TaskMetrics metrics = context.getMetrics();
+        List<PipeProcessorNode> nodes = task.getProcessorChain().getNodes();
+        int n = nodes.size() + 2;
+        List<StageMetrics> stages = new ArrayList<>(n);
+        List<DataBuffer<?>> inputs = new ArrayList<>(n);
+        int[] workers = new int[n];
+        stages.add(metrics.getReader());
+        inputs.add(null);
+        workers[0] = 1;
+        DataBuffer<?> input = context.getReadBuffer();
+        for (int i = 0; i < nodes.size(); i++) {
+            PipeProcessorNode node = nodes.get(i);
+            stages.add(metrics.getProcessor(i));
+            // 融合节点与上个节点在同一线程中处理，没有独立的输入缓冲区
+            inputs.add(node.isFused() ? null : input);
+            // 开启自动伸缩时取当前工作线程数
+            int current = node.getWorkers().get();
+            workers[i + 1] = Math.max(1, current > 0 ? current : node.getAttributes().getParallelism());
+            if (node.isFused()) {
+                workers[i + 1] = workers[i];
+            }
+            if (node.getBuffer().capacity() > 0) {
+                input = node.getBuffer();
+            }
+        }
+        stages.add(metrics.getWriter());
+        inputs.add(context.getWriteBuffer());
+        workers[n - 1] = 1;
+
+        long now = System.nanoTime();
+        long window = Math.max(1L, now - lastNanos);
+        if (lastBusy == null || lastBusy.length != n) {
+            lastBusy = new long[n];
+            lastBlocked = new long[n];
+            lastIdle = new long[n];
+        }
+        List<BottleneckReport.StageLoad> loads = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            StageMetrics stage = stages.get(i);
+            long busy = stage.getLatency().getTotal();
+            long blocked = stage.getBlockedNanos();
+            long idle = stage.getIdleNanos();
+            double capacity = (double) window * workers[i];
+            DataBuffer<?> buffer = inputs.get(i);
+            double fill = buffer == null || buffer.capacity() <= 0 ? -1D : buffer.fillRatio();
+            loads.add(new BottleneckReport.StageLoad(stage.getName(), workers[i], ratio(busy - lastBusy[i], capacity),
+                    ratio(blocked - lastBlocked[i], capacity), ratio(idle - lastIdle[i], capacity), fill));
+            lastBusy[i] = busy;
+            lastBlocked[i] = blocked;
+            lastIdle[i] = idle;
+        }
+        lastNanos = now;
+
+        BottleneckReport.StageLoad bottleneck = null;
+        int index = -1;
+        for (int i = 0; i < n; i++) {
+            BottleneckReport.StageLoad load = loads.get(i);
+            if (load.getBusyRatio() >= MIN_BUSY_RATIO && (bottleneck == null || load.getBusyRatio() > bottleneck.getBusyRatio())) {
+                bottleneck = load;
+                index = i;
+            }
+        }
+        List<BottleneckReport.StageLoad> backpressured = new ArrayList<>();
+        for (int i = index - 1; i >= 0 && loads.get(i).getBlockedRatio() >= BACKPRESSURE_THRESHOLD; i--) {
+            backpressured.add(loads.get(i));
+        }
+        return new BottleneckReport(window / 1_000_000L, loads, bottleneck, backpressured);
+    }
+
+    private double ratio(long nanos, double capacity) {
+        return Math.min(1D, Math.max(0D, nanos / capacity));
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.aihuishou.pipeline.core.manager;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分层时间轮
+ * 共 {@value #LEVELS} 层，每层 {@value #WHEEL_SIZE} 个槽，第 n 层每个槽跨度为 tick * 64^n，高层槽到期时逐级下放到低层；
+ * 每个 tick 只处理到期的定时器，开销与注册的定时器总数无关
+ * 新增和取消的定时器先放入无锁队列，由时间轮线程统一处理，定时任务也在时间轮线程上执行
+ * @author ethan zhang
+ */
+@Slf4j
+class HierarchicalTimerWheel {
+
+    private static final int LEVELS = 6;
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long tickNanos;
+
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Thread worker;
+
+    private volatile boolean running;
+
+    private long startNanos;
+
+    /**
+     * 下一个待处理的 tick
+     */
+    private long currentTick;
+
+    HierarchicalTimerWheel(Duration tick, String name) {
+        this.tickNanos = Math.max(tick.toNanos(), TimeUnit.MILLISECONDS.toNanos(1));
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        worker = DaemonThreadFactory.INSTANCE.newThread(this::run);
+        worker.setName(name);
+    }
+
+    synchronized void start() {
+        if (!running) {
+            running = true;
+            startNanos = System.nanoTime();
+            worker.start();
+        }
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * 在 delay 之后执行一次 task
+     */
+    Timeout schedule(Duration delay, Runnable task) {
+        Timeout timeout = new Timeout(this, System.nanoTime() + Math.max(delay.toNanos(), 0L), task);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (currentTick + 1) * tickNanos;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            processCancelled();
+            processPending();
+            // 可能因执行定时任务而落后多个 tick，逐个补齐
+            long now = System.nanoTime();
+            while (running && startNanos + (currentTick + 1) * tickNanos - now <= 0) {
+                tick();
+            }
+        }
+        processCancelled();
+        pendingTimeouts.clear();
+    }
+
+    private void processPending() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() == Timeout.PENDING) {
+                add(timeout);
+            }
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void add(Timeout timeout) {
+        long target = Math.max((timeout.deadlineNanos - startNanos) / tickNanos, currentTick);
+        // 超出时间轮范围的定时器先放在最高层最远的槽，下放时按实际到期时间重新计算
+        target = Math.min(target, currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1);
+        long ticks = target - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (target >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        wheels[level][slot].add(timeout);
+    }
+
+    private void tick() {
+        int index = (int) (currentTick & WHEEL_MASK);
+        // 低层转完一圈时把上一层对应槽的定时器下放
+        for (int level = 1; index == 0 && level < LEVELS; level++) {
+            index = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            cascade(wheels[level][index]);
+        }
+        Bucket bucket = wheels[0][(int) (currentTick & WHEEL_MASK)];
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            timeout.expire();
+        }
+        currentTick++;
+    }
+
+    private void cascade(Bucket bucket) {
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            add(timeout);
+        }
+    }
+
+    /**
+     * 定时器句柄
+     */
+    static class Timeout {
+
+        private static final int PENDING = 0;
+
+        private static final int CANCELLED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final HierarchicalTimerWheel wheel;
+
+        private final long deadlineNanos;
+
+        private final Runnable task;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Bucket bucket;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(HierarchicalTimerWheel wheel, long deadlineNanos, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        /**
+         * 取消定时器，已执行或已取消时返回 false
+         */
+        boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                wheel.cancelledTimeouts.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    log.error("Timer task failed!", e);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 时间轮的槽（双向链表，仅由时间轮线程访问）
+     */
+    private static class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+
+    }
+
+}
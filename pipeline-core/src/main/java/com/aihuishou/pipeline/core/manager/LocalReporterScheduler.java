@@ -1,22 +1,28 @@
 package com.aihuishou.pipeline.core.manager;
 
+import com.aihuishou.pipeline.core.config.GlobalConfig;
 import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.event.TaskBottleneckEvent;
 import com.aihuishou.pipeline.core.event.TaskEvictedEvent;
+import com.aihuishou.pipeline.core.metrics.BottleneckReport;
 import com.aihuishou.pipeline.core.task.PipeTask;
 import com.github.benmanes.caffeine.cache.RemovalCause;
-import com.google.common.util.concurrent.AbstractScheduledService;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * 本地报告调度器（基于分层时间轮）
+ * 每个任务在注册时预约下一次报告、瓶颈分析、警告汇总和超时检查，每个 tick 只处理到期的任务
+ * @author ethan zhang
+ */
 class LocalReporterScheduler extends AbstractTaskScheduler {
 
-    private final ConcurrentMap<String, Instant> timer = new ConcurrentHashMap<>();
+    private final HierarchicalTimerWheel timerWheel = new HierarchicalTimerWheel(GlobalConfig.REPORTER.getTickDuration(), "local-reporter-scheduler");
 
-    private final Scheduler scheduler = new Scheduler();
+    private final ConcurrentMap<String, TaskTimers> timers = new ConcurrentHashMap<>();
 
     public LocalReporterScheduler(TaskRegistry taskRegistry) {
         super(taskRegistry);
@@ -24,59 +30,144 @@ class LocalReporterScheduler extends AbstractTaskScheduler {
 
     @Override
     protected void start() {
-        scheduler.startAsync();
+        timerWheel.start();
     }
 
     @Override
     protected void shutdown() {
-        scheduler.stopAsync();
+        timerWheel.stop();
+        timers.values().forEach(TaskTimers::cancel);
+        timers.clear();
     }
 
-    private class Scheduler extends AbstractScheduledService {
-
-        @Override
-        protected void runOneIteration() {
-            Map<String, PipeTask<?, ?>> tasks = taskRegistry.getAll();
-            for (Map.Entry<String, PipeTask<?, ?>> entry : tasks.entrySet()) {
-                String taskId = entry.getKey();
-                PipeTask<?, ?> task = entry.getValue();
-                TaskContext<?, ?> context = task.getContext();
-                if (context.isTerminated() || context.isFailed()) {
-                    timer.remove(taskId);
-                    continue;
-                }
-                if (context.isTimeout()) {
-                    task.getDispatcher().dispatch(new TaskEvictedEvent(task, RemovalCause.EXPIRED));
-                    continue;
-                }
-                if (!timer.containsKey(taskId)) {
-                    try {
-                        task.getReporter().report(task);
-                    } finally {
-                        timer.put(taskId, Instant.now());
-                    }
-                } else {
-                    Instant lastReportTime = timer.get(taskId);
-                    if (lastReportTime.plus(context.getReportPeriod().get()).isBefore(Instant.now())) {
-                        try {
-                            task.getReporter().report(task);
-                        } finally {
-                            timer.put(taskId, Instant.now());
-                        }
-                    }
-                }
+    @Override
+    protected void schedule(PipeTask<?, ?> task) {
+        TaskTimers taskTimers = new TaskTimers();
+        TaskTimers previous = timers.put(task.getTaskId(), taskTimers);
+        if (previous != null) {
+            previous.cancel();
+        }
+        scheduleReport(task, taskTimers);
+        scheduleAnalyze(task, taskTimers, new BottleneckAnalyzer(task));
+        scheduleSummary(task, taskTimers);
+        TaskContext<?, ?> context = task.getContext();
+        if (context.getTimeout().isPresent()) {
+            Instant startTime = context.getStartTime().isPresent() ? context.getStartTime().get() : Instant.now();
+            scheduleTimeout(task, taskTimers, Duration.between(Instant.now(), startTime.plus(context.getTimeout().get())));
+        }
+    }
+
+    @Override
+    protected void cancel(PipeTask<?, ?> task) {
+        TaskTimers taskTimers = timers.remove(task.getTaskId());
+        if (taskTimers != null) {
+            taskTimers.cancel();
+        }
+    }
+
+    private void scheduleReport(PipeTask<?, ?> task, TaskTimers taskTimers) {
+        if (!task.getContext().getReportPeriod().isPresent()) {
+            return;
+        }
+        taskTimers.report = timerWheel.schedule(task.getContext().getReportPeriod().get(), () -> {
+            if (isFinished(task, taskTimers)) {
+                return;
+            }
+            try {
+                task.getReporter().report(task);
+            } finally {
+                // 报告周期可能被修改，每次按最新的周期预约下一次报告
+                scheduleReport(task, taskTimers);
             }
+        });
+    }
+
+    private void scheduleAnalyze(PipeTask<?, ?> task, TaskTimers taskTimers, BottleneckAnalyzer analyzer) {
+        Duration period = GlobalConfig.REPORTER.getBottleneckAnalyzePeriod();
+        if (period == null || period.isZero() || period.isNegative()) {
+            return;
         }
+        taskTimers.analyze = timerWheel.schedule(period, () -> {
+            if (isFinished(task, taskTimers)) {
+                return;
+            }
+            try {
+                BottleneckReport report = analyzer.analyze();
+                task.getContext().getMetrics().setBottleneck(report);
+                task.getDispatcher().dispatch(new TaskBottleneckEvent(task, report));
+            } finally {
+                scheduleAnalyze(task, taskTimers, analyzer);
+            }
+        });
+    }
 
-        @SuppressWarnings("all")
-        @Override
-        protected Scheduler scheduler() {
-            return Scheduler.newFixedRateSchedule(5, 5, TimeUnit.SECONDS);
+    private void scheduleSummary(PipeTask<?, ?> task, TaskTimers taskTimers) {
+        Duration interval = GlobalConfig.WARNNING.getSummaryInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            return;
         }
+        taskTimers.summary = timerWheel.schedule(interval, () -> {
+            if (isFinished(task, taskTimers)) {
+                return;
+            }
+            try {
+                task.getContext().getWarnningAggregator().summarize(task);
+            } finally {
+                scheduleSummary(task, taskTimers);
+            }
+        });
+    }
+
+    private void scheduleTimeout(PipeTask<?, ?> task, TaskTimers taskTimers, Duration delay) {
+        taskTimers.timeout = timerWheel.schedule(delay, () -> {
+            if (isFinished(task, taskTimers)) {
+                return;
+            }
+            TaskContext<?, ?> context = task.getContext();
+            if (context.isTimeout()) {
+                task.getDispatcher().dispatch(new TaskEvictedEvent(task, RemovalCause.EXPIRED));
+            } else if (context.getTimeout().isPresent() && context.getStartTime().isPresent()) {
+                scheduleTimeout(task, taskTimers, Duration.between(Instant.now(), context.getStartTime().get().plus(context.getTimeout().get())));
+            }
+        });
+    }
+
+    /**
+     * 任务已结束或已被取消调度时不再预约
+     */
+    private boolean isFinished(PipeTask<?, ?> task, TaskTimers taskTimers) {
+        TaskContext<?, ?> context = task.getContext();
+        if (context.isTerminated() || context.isFailed()) {
+            timers.remove(task.getTaskId(), taskTimers);
+            taskTimers.cancel();
+            return true;
+        }
+        return timers.get(task.getTaskId()) != taskTimers;
+    }
+
+    private static class TaskTimers {
 
-        @Override
-        protected void shutDown() throws Exception {
-            timer.clear();
+        private volatile HierarchicalTimerWheel.Timeout report;
+
+        private volatile HierarchicalTimerWheel.Timeout timeout;
+
+        private volatile HierarchicalTimerWheel.Timeout analyze;
+
+        private volatile HierarchicalTimerWheel.Timeout summary;
+
+        void cancel() {
+            if (report != null) {
+                report.cancel();
+            }
+            if (analyze != null) {
+                analyze.cancel();
+            }
+            if (summary != null) {
+                summary.cancel();
+            }
+            if (timeout != null) {
+                timeout.cancel();
+            }
         }
 
     }
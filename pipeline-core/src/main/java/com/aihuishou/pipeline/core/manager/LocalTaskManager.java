@@ -1,10 +1,12 @@
 package com.aihuishou.pipeline.core.manager;
 
+import com.aihuishou.pipeline.core.context.TaskContext;
 import com.aihuishou.pipeline.core.context.TaskState;
 import com.aihuishou.pipeline.core.event.*;
 import com.aihuishou.pipeline.core.event.dispatcher.DisruptorTaskEventDispatcher;
 import com.aihuishou.pipeline.core.event.dispatcher.TaskEventDispatcher;
 import com.aihuishou.pipeline.core.event.subscriber.GenericTaskEventSubscriber;
+import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
 import com.aihuishou.pipeline.core.task.PipeTask;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +53,29 @@ public enum LocalTaskManager implements TaskManager {
         taskScheduler.shutdown();
     }
 
+    /**
+     * 任务结束后释放所有缓冲区（归还按字节限制的缓冲区占用的内存预算）
+     */
+    @SuppressWarnings("rawtypes")
+    private void releaseBuffers(PipeTask<?, ?> task) {
+        task.getContext().getReadBuffer().release();
+        for (PipeProcessorNode node : task.getProcessorChain().getNodes()) {
+            if (node.getBuffer() != null) {
+                node.getBuffer().release();
+            }
+        }
+        task.getContext().getWriteBuffer().release();
+    }
+
+    /**
+     * 各阶段是否都已进入终态
+     */
+    private boolean isFinalState(PipeTask<?, ?> task) {
+        TaskContext<?, ?> context = task.getContext();
+        return context.getReaderState().get().isFinalState() && context.getProcessorState().get().isFinalState()
+                && context.getWriterState().get().isFinalState();
+    }
+
     private void addSubscribers() {
         dispatcher.addSubsriber(new GenericTaskEventSubscriber<TaskStartedEvent>() {
             @Override
@@ -60,6 +85,7 @@ public enum LocalTaskManager implements TaskManager {
                 task.getReporter().reportEvent(event);
                 task.getReporter().report(task);
                 registry.register(task);
+                taskScheduler.schedule(task);
             }
         });
         dispatcher.addSubsriber(new GenericTaskEventSubscriber<TaskShutdownEvent>() {
@@ -69,7 +95,9 @@ public enum LocalTaskManager implements TaskManager {
                 task.getReporter().reportEvent(event);
                 task.getReporter().report(task);
                 task.getDispatcher().clearTaskEventStream(task.getTaskId());
+                releaseBuffers(task);
                 registry.unregister(task);
+                taskScheduler.cancel(task);
                 log.info("Task [{}] has been shutdown...", task.getTaskId());
             }
         });
@@ -81,7 +109,9 @@ public enum LocalTaskManager implements TaskManager {
                 task.getContext().getFinishTime().set(Instant.now());
                 task.getReporter().report(task);
                 task.getDispatcher().clearTaskEventStream(task.getTaskId());
+                releaseBuffers(task);
                 registry.unregister(task);
+                taskScheduler.cancel(task);
                 log.info("Task [{}] finished...", task.getTaskId());
             }
         });
@@ -95,7 +125,9 @@ public enum LocalTaskManager implements TaskManager {
                 task.getContext().getWriterState().set(TaskState.FAILED);
                 task.getReporter().report(task);
                 task.getDispatcher().clearTaskEventStream(task.getTaskId());
+                releaseBuffers(task);
                 registry.unregister(task);
+                taskScheduler.cancel(task);
                 log.error("Task [{}] failed, cause: {}", task.getTaskId(), event.getCause(), event.getThrowable());
             }
         });
@@ -106,7 +138,12 @@ public enum LocalTaskManager implements TaskManager {
                 task.getReporter().reportEvent(event);
                 task.getReporter().report(task);
                 task.getDispatcher().clearTaskEventStream(task.getTaskId());
+                // 淘汰不会停止任务，仍在运行的任务由之后的完成、失败或终止事件释放缓冲区
+                if (isFinalState(task)) {
+                    releaseBuffers(task);
+                }
                 registry.unregister(task);
+                taskScheduler.cancel(task);
                 log.info("Task [{}] has been evicted, cause: {}", task.getTaskId(), event.getCause());
             }
         });
@@ -117,6 +154,20 @@ public enum LocalTaskManager implements TaskManager {
                 task.getReporter().reportEvent(event);
             }
         });
+        dispatcher.addSubsriber(new GenericTaskEventSubscriber<TaskBottleneckEvent>() {
+            @Override
+            protected void subscribeInternal(TaskBottleneckEvent event) {
+                PipeTask<?, ?> task = event.getTask();
+                task.getReporter().reportEvent(event);
+            }
+        });
+        dispatcher.addSubsriber(new GenericTaskEventSubscriber<TaskScaledEvent>() {
+            @Override
+            protected void subscribeInternal(TaskScaledEvent event) {
+                PipeTask<?, ?> task = event.getTask();
+                task.getReporter().reportEvent(event);
+            }
+        });
     }
 
 }
@@ -0,0 +1,92 @@
+package com.aihuishou.pipeline.core.metrics;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 瓶颈报告
+ * 统计窗口内各阶段的繁忙、阻塞（输出缓冲区已满）、空闲（输入缓冲区为空）时间占比，繁忙占比最高的阶段即为瓶颈，
+ * 瓶颈上游连续处于阻塞状态的阶段即为背压传播的范围
+ * @author ethan zhang
+ */
+@Getter
+public class BottleneckReport {
+
+    /**
+     * 统计窗口长度（毫秒）
+     */
+    private final long windowMillis;
+
+    /**
+     * 按数据流向排列的各阶段负载
+     */
+    private final List<StageLoad> stages;
+
+    /**
+     * 瓶颈阶段，窗口内没有任何阶段繁忙时为 null
+     */
+    private final StageLoad bottleneck;
+
+    /**
+     * 受瓶颈背压而阻塞的上游阶段，由近及远
+     */
+    private final List<StageLoad> backpressured;
+
+    public BottleneckReport(long windowMillis, List<StageLoad> stages, StageLoad bottleneck, List<StageLoad> backpressured) {
+        this.windowMillis = windowMillis;
+        this.stages = stages;
+        this.bottleneck = bottleneck;
+        this.backpressured = backpressured;
+    }
+
+    @Override
+    public String toString() {
+        if (bottleneck == null) {
+            return String.format("no bottleneck in last %dms", windowMillis);
+        }
+        return String.format("bottleneck: %s (busy %.0f%%), backpressured: %s, stages: %s", bottleneck.getName(), bottleneck.getBusyRatio() * 100,
+                backpressured.stream().map(StageLoad::getName).collect(Collectors.toList()), stages);
+    }
+
+    /**
+     * 单个阶段在窗口内的负载，各占比均已除以该阶段的工作线程数
+     */
+    @Getter
+    public static class StageLoad {
+
+        private final String name;
+
+        private final int workers;
+
+        private final double busyRatio;
+
+        private final double blockedRatio;
+
+        private final double idleRatio;
+
+        /**
+         * 输入缓冲区的填充率，没有输入缓冲区时为 -1
+         */
+        private final double inputFillRatio;
+
+        public StageLoad(String name, int workers, double busyRatio, double blockedRatio, double idleRatio, double inputFillRatio) {
+            this.name = name;
+            this.workers = workers;
+            this.busyRatio = busyRatio;
+            this.blockedRatio = blockedRatio;
+            this.idleRatio = idleRatio;
+            this.inputFillRatio = inputFillRatio;
+        }
+
+        @Override
+        public String toString() {
+            String fill = inputFillRatio < 0 ? "-" : String.format("%.0f%%", inputFillRatio * 100);
+            return String.format("%s(x%d busy=%.0f%% blocked=%.0f%% idle=%.0f%% input=%s)",
+                    name, workers, busyRatio * 100, blockedRatio * 100, idleRatio * 100, fill);
+        }
+
+    }
+
+}
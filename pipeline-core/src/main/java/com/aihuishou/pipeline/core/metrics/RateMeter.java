@@ -0,0 +1,119 @@
+package com.aihuishou.pipeline.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 速率计，以指数加权移动平均计算最近 1、5、15 分钟的每秒速率
+ * 每 5 秒衰减一次，由记录或读取时顺带触发，不需要额外的线程
+ * @author ethan zhang
+ */
+public class RateMeter {
+
+    private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final Ewma m1Rate = new Ewma(1);
+
+    private final Ewma m5Rate = new Ewma(5);
+
+    private final Ewma m15Rate = new Ewma(15);
+
+    private final LongAdder count = new LongAdder();
+
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLong lastTick = new AtomicLong(startTime);
+
+    public void mark(long n) {
+        tickIfNecessary();
+        count.add(n);
+        m1Rate.update(n);
+        m5Rate.update(n);
+        m15Rate.update(n);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getOneMinuteRate() {
+        tickIfNecessary();
+        return m1Rate.getRate();
+    }
+
+    public double getFiveMinuteRate() {
+        tickIfNecessary();
+        return m5Rate.getRate();
+    }
+
+    public double getFifteenMinuteRate() {
+        tickIfNecessary();
+        return m15Rate.getRate();
+    }
+
+    /**
+     * 从创建至今的平均速率
+     */
+    public double getMeanRate() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0D : getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private void tickIfNecessary() {
+        long oldTick = lastTick.get();
+        long newTick = System.nanoTime();
+        long age = newTick - oldTick;
+        if (age > TICK_INTERVAL) {
+            long newIntervalStartTick = newTick - age % TICK_INTERVAL;
+            if (lastTick.compareAndSet(oldTick, newIntervalStartTick)) {
+                long requiredTicks = age / TICK_INTERVAL;
+                for (long i = 0; i < requiredTicks; i++) {
+                    m1Rate.tick();
+                    m5Rate.tick();
+                    m15Rate.tick();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("mean=%.1f/s, m1=%.1f/s, m5=%.1f/s, m15=%.1f/s", getMeanRate(), getOneMinuteRate(), getFiveMinuteRate(), getFifteenMinuteRate());
+    }
+
+    private static class Ewma {
+
+        private final double alpha;
+
+        private final LongAdder uncounted = new LongAdder();
+
+        private volatile boolean initialized;
+
+        private volatile double rate;
+
+        private Ewma(int minutes) {
+            this.alpha = 1 - Math.exp(-TICK_INTERVAL / (double) TimeUnit.MINUTES.toNanos(minutes));
+        }
+
+        void update(long n) {
+            uncounted.add(n);
+        }
+
+        synchronized void tick() {
+            double instantRate = uncounted.sumThenReset() / (double) TICK_INTERVAL;
+            if (initialized) {
+                rate += alpha * (instantRate - rate);
+            } else {
+                rate = instantRate;
+                initialized = true;
+            }
+        }
+
+        double getRate() {
+            return rate * TimeUnit.SECONDS.toNanos(1);
+        }
+
+    }
+
+}
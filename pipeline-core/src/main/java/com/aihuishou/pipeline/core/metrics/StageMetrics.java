@@ -0,0 +1,101 @@
+package com.aihuishou.pipeline.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个阶段（reader、processor 节点、writer）的运行指标
+ * @author ethan zhang
+ */
+public class StageMetrics {
+
+    private final String name;
+
+    /**
+     * 每次 read / process / write 调用的耗时（纳秒）
+     */
+    private final Histogram latency = new Histogram();
+
+    /**
+     * 每次调用处理的数据块大小
+     */
+    private final Histogram chunkSize = new Histogram();
+
+    /**
+     * 输出数据量的速率
+     */
+    private final RateMeter throughput = new RateMeter();
+
+    /**
+     * 因输出缓冲区已满而等待的时间
+     */
+    private final LongAdder blockedNanos = new LongAdder();
+
+    /**
+     * 因输入缓冲区为空而空闲的时间
+     */
+    private final LongAdder idleNanos = new LongAdder();
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次调用
+     * @param nanos 调用耗时
+     * @param chunkSize 数据块大小
+     * @param output 输出的数据量
+     */
+    public void recordCall(long nanos, int chunkSize, int output) {
+        this.latency.record(nanos);
+        this.chunkSize.record(chunkSize);
+        if (output > 0) {
+            this.throughput.mark(output);
+        }
+    }
+
+    public void recordBlocked(long nanos) {
+        if (nanos > 0) {
+            blockedNanos.add(nanos);
+        }
+    }
+
+    public void recordIdle(long nanos) {
+        if (nanos > 0) {
+            idleNanos.add(nanos);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public Histogram getChunkSize() {
+        return chunkSize;
+    }
+
+    public RateMeter getThroughput() {
+        return throughput;
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+
+    public long getIdleNanos() {
+        return idleNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: latency(us)[p50=%d, p99=%d, max=%d], chunk[mean=%.1f, max=%d], throughput[%s], blocked=%dms, idle=%dms",
+                name, TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(50)), TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(latency.getMax()), chunkSize.getMean(), chunkSize.getMax(), throughput,
+                TimeUnit.NANOSECONDS.toMillis(getBlockedNanos()), TimeUnit.NANOSECONDS.toMillis(getIdleNanos()));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.aihuishou.pipeline.core.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 任务运行指标，按阶段划分：reader、各 processor 节点（按在处理链中的位置）、writer
+ * @author ethan zhang
+ */
+public class TaskMetrics {
+
+    private final StageMetrics reader = new StageMetrics("reader");
+
+    private final ConcurrentSkipListMap<Integer, StageMetrics> processors = new ConcurrentSkipListMap<>();
+
+    private final StageMetrics writer = new StageMetrics("writer");
+
+    /**
+     * reader 自定义的瞬时指标（如自适应步长），报告时取当前值
+     */
+    private final ConcurrentSkipListMap<String, LongSupplier> readerGauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * 最近一次瓶颈分析的结果
+     */
+    private volatile BottleneckReport bottleneck;
+
+    public StageMetrics getReader() {
+        return reader;
+    }
+
+    /**
+     * 处理链中第 index 个节点的指标
+     */
+    public StageMetrics getProcessor(int index) {
+        return processors.computeIfAbsent(index, i -> new StageMetrics("processor-" + i));
+    }
+
+    public List<StageMetrics> getProcessors() {
+        return new ArrayList<>(processors.values());
+    }
+
+    public StageMetrics getWriter() {
+        return writer;
+    }
+
+    /**
+     * 注册 reader 的瞬时指标，同名指标覆盖
+     */
+    public void registerReaderGauge(String name, LongSupplier gauge) {
+        readerGauges.put(name, gauge);
+    }
+
+    /**
+     * reader 瞬时指标的当前值，按名称排列
+     */
+    public Map<String, Long> getReaderGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        readerGauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    public BottleneckReport getBottleneck() {
+        return bottleneck;
+    }
+
+    public void setBottleneck(BottleneckReport bottleneck) {
+        this.bottleneck = bottleneck;
+    }
+
+    /**
+     * 所有阶段，按数据流向排列
+     */
+    public List<StageMetrics> getStages() {
+        List<StageMetrics> stages = new ArrayList<>(processors.size() + 2);
+        stages.add(reader);
+        stages.addAll(processors.values());
+        stages.add(writer);
+        return stages;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.aihuishou.pipeline.core.processor;
+
+import com.aihuishou.pipeline.core.context.ColumnarDataChunk;
+import com.aihuishou.pipeline.core.context.ColumnarSchema;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+
+import java.util.function.BiFunction;
+
+/**
+ * 列式数据中间处理，按列处理同一批数据
+ * 输入不是同一结构的列式数据块时先按 {@link #getSchema()} 行转列；与融合的节点之间直接传递列式数据块，不转换为行
+ * @param <T> 行类型
+ * @author ethan zhang
+ */
+public interface ColumnarPipeProcessor<T> extends PipeProcessor<T, T> {
+
+    ColumnarSchema<T> getSchema();
+
+    DataChunk<T> processColumns(TaskContext<T, T> context, ColumnarDataChunk<T> input);
+
+    @Override
+    default DataChunk<T> process(TaskContext<T, T> context, DataChunk<T> input) {
+        return processColumns(context, ColumnarDataChunk.from(input, getSchema()));
+    }
+
+    static <T> ColumnarPipeProcessor<T> of(ColumnarSchema<T> schema, BiFunction<TaskContext<T, T>, ColumnarDataChunk<T>, DataChunk<T>> function) {
+        return new ColumnarPipeProcessor<T>() {
+
+            @Override
+            public ColumnarSchema<T> getSchema() {
+                return schema;
+            }
+
+            @Override
+            public DataChunk<T> processColumns(TaskContext<T, T> context, ColumnarDataChunk<T> input) {
+                return function.apply(context, input);
+            }
+
+        };
+    }
+
+}
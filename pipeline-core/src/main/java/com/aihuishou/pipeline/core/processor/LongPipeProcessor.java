@@ -0,0 +1,23 @@
+package com.aihuishou.pipeline.core.processor;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.LongDataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+
+/**
+ * long 数据中间处理
+ * 读取缓冲区使用 {@link com.aihuishou.pipeline.core.buffer.LongDataBuffer}，输入数据不装箱
+ * @param <O> 输出类型
+ * @author ethan zhang
+ */
+@FunctionalInterface
+public interface LongPipeProcessor<O> extends PipeProcessor<Long, O> {
+
+    DataChunk<O> processLongs(TaskContext<Long, O> context, LongDataChunk input);
+
+    @Override
+    default DataChunk<O> process(TaskContext<Long, O> context, DataChunk<Long> input) {
+        return processLongs(context, LongDataChunk.from(input));
+    }
+
+}
@@ -25,6 +25,9 @@ public abstract class PartitionedConcurrentProcessor<I, O> implements PipeProces
         this.executor = ForkJoinPool.commonPool();
     }
 
+    /**
+     * 指定分片处理的执行器，I/O 密集时可使用 {@link com.aihuishou.pipeline.core.utils.VirtualThreadUtil#executor()}，每个分片一个虚拟线程
+     */
     public PartitionedConcurrentProcessor(int size, Executor executor) {
         this.size = size;
         this.executor = executor;
@@ -32,8 +35,8 @@ public abstract class PartitionedConcurrentProcessor<I, O> implements PipeProces
 
     @Override
     public DataChunk<O> process(TaskContext<I, O> context, DataChunk<I> input) {
-        return DataChunk.of(BatchUtil.partitionAndProcess(input.toList(), size,
-                (List<I> list) -> processInternal(context, DataChunk.of(list)).toList(), executor));
+        return DataChunk.wrap(BatchUtil.partitionAndProcess(input.asList(), size,
+                (List<I> list) -> processInternal(context, DataChunk.wrap(list)).asList(), executor));
     }
 
     protected abstract DataChunk<O> processInternal(TaskContext<I, O> context, DataChunk<I> input);
@@ -1,11 +1,14 @@
 package com.aihuishou.pipeline.core.processor;
 
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
 import com.aihuishou.pipeline.core.buffer.DataBuffer;
 import com.aihuishou.pipeline.core.context.TaskStateHolder;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 数据处理链节点
  * @param <I> 输入类型
@@ -31,6 +34,21 @@ public class PipeProcessorNode<I, O> {
      */
     private DataBuffer<O> buffer;
 
+    /**
+     * 当前节点配置
+     */
+    private TaskConfigAttributes attributes;
+
+    /**
+     * 是否与上个节点融合，融合的节点与上个节点在同一线程中依次处理同一批数据
+     */
+    private boolean fused;
+
+    /**
+     * 当前工作线程数，开启自动伸缩时随负载在最小、最大并行度之间变化
+     */
+    private final AtomicInteger workers = new AtomicInteger();
+
     private PipeProcessorNode() {}
 
     public static <I, O> Builder<I, O> builder() {
@@ -56,6 +74,16 @@ public class PipeProcessorNode<I, O> {
             return Builder.this;
         }
 
+        public Builder<I, O> attributes(TaskConfigAttributes attributes) {
+            node.setAttributes(attributes);
+            return Builder.this;
+        }
+
+        public Builder<I, O> fused(boolean fused) {
+            node.setFused(fused);
+            return Builder.this;
+        }
+
         public PipeProcessorNode<I, O> build() {
             return node;
         }
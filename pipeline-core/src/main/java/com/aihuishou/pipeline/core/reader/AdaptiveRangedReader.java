@@ -0,0 +1,74 @@
+package com.aihuishou.pipeline.core.reader;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import lombok.Getter;
+
+import java.util.function.BiFunction;
+
+/**
+ * 自适应步长范围读取
+ * 根据上一个区间读到的数据量，按比例放大或缩小步长，使每次读取的数据量趋近目标值
+ * 单次调整幅度不超过 {@link #MAX_FACTOR} 倍，步长始终限制在 [minSpan, maxSpan] 内
+ * 当前步长可通过 {@link #getSpan()} 获取，并作为 reader 指标 {@link #SPAN_GAUGE} 随任务报告输出
+ * @param <I> 读取类型
+ * @param <BORDER> 边界类型
+ * @author ethan zhang
+ */
+@Getter
+public abstract class AdaptiveRangedReader<I, BORDER extends Comparable<BORDER>> extends RangedReader<I, BORDER, Long> {
+
+    /**
+     * 单次调整的最大倍数
+     */
+    private static final double MAX_FACTOR = 4D;
+
+    /**
+     * 当前步长的指标名
+     */
+    public static final String SPAN_GAUGE = "span";
+
+    /**
+     * 每次读取的目标数据量
+     */
+    private final int targetSize;
+
+    /**
+     * 最小步长
+     */
+    private final long minSpan;
+
+    /**
+     * 最大步长
+     */
+    private final long maxSpan;
+
+    /**
+     * 上一个区间读取到的数据量
+     */
+    private volatile int lastSize;
+
+    public AdaptiveRangedReader(BORDER left, BORDER right, long initialSpan, BiFunction<BORDER, Long, BORDER> incrementer,
+                                int targetSize, long minSpan, long maxSpan) {
+        super(left, right, Math.max(minSpan, Math.min(initialSpan, maxSpan)), incrementer);
+        this.targetSize = targetSize;
+        this.minSpan = minSpan;
+        this.maxSpan = maxSpan;
+    }
+
+    @Override
+    public void initialize(TaskContext<I, ?> context) {
+        context.getMetrics().registerReaderGauge(SPAN_GAUGE, this::getSpan);
+    }
+
+    @Override
+    protected void afterRange(BORDER left, BORDER right, DataChunk<I> chunk) {
+        int size = chunk.size();
+        lastSize = size;
+        // 空区间按最大倍数放大，其余按目标数据量与实际数据量之比调整
+        double factor = size == 0 ? MAX_FACTOR : Math.max(1 / MAX_FACTOR, Math.min((double) targetSize / size, MAX_FACTOR));
+        long span = (long) Math.ceil(getSpan() * factor);
+        setSpan(Math.max(minSpan, Math.min(span, maxSpan)));
+    }
+
+}
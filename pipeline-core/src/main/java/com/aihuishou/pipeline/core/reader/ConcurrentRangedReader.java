@@ -0,0 +1,143 @@
+package com.aihuishou.pipeline.core.reader;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.utils.ThreadUtil;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
+
+/**
+ * 并发范围读取
+ * 按步长将 [left, right) 切分为若干区间，最多同时读取 concurrency 个区间，可选按区间顺序输出
+ * {@link #readRange} 会被多个线程并发调用，子类实现需保证线程安全
+ * @param <I> 读取类型
+ * @param <BORDER> 边界类型
+ * @param <SPAN> 跨度类型
+ * @author ethan zhang
+ */
+public abstract class ConcurrentRangedReader<I, BORDER extends Comparable<BORDER>, SPAN> extends RangedReader<I, BORDER, SPAN> {
+
+    /**
+     * 最大并发读取的区间数
+     */
+    @Getter
+    private final int concurrency;
+
+    /**
+     * 是否按区间顺序输出
+     */
+    @Getter
+    private final boolean ordered;
+
+    private final Executor executor;
+
+    /**
+     * 是否由当前读取器创建线程池，若是则在销毁时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 按提交顺序排列的读取任务（顺序输出时使用）
+     */
+    private final Deque<CompletableFuture<DataChunk<I>>> pending = new ArrayDeque<>();
+
+    /**
+     * 按完成顺序排列的读取任务（乱序输出时使用）
+     */
+    private final BlockingQueue<CompletableFuture<DataChunk<I>>> completed = new LinkedBlockingQueue<>();
+
+    /**
+     * 已提交但尚未输出的读取任务数
+     */
+    private int inFlight;
+
+    public ConcurrentRangedReader(BORDER left, BORDER right, SPAN span, BiFunction<BORDER, SPAN, BORDER> incrementer,
+                                  int concurrency, boolean ordered) {
+        this(left, right, span, incrementer, concurrency, ordered, Executors.newFixedThreadPool(concurrency, DaemonThreadFactory.INSTANCE), true);
+    }
+
+    public ConcurrentRangedReader(BORDER left, BORDER right, SPAN span, BiFunction<BORDER, SPAN, BORDER> incrementer,
+                                  int concurrency, boolean ordered, Executor executor) {
+        this(left, right, span, incrementer, concurrency, ordered, executor, false);
+    }
+
+    private ConcurrentRangedReader(BORDER left, BORDER right, SPAN span, BiFunction<BORDER, SPAN, BORDER> incrementer,
+                                   int concurrency, boolean ordered, Executor executor, boolean ownExecutor) {
+        super(left, right, span, incrementer);
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    @Override
+    public DataChunk<I> read(TaskContext<I, ?> context) {
+        while (true) {
+            // 补满读取窗口，已输出的区间腾出位置后才会提交新的区间
+            submit(context);
+            if (inFlight == 0) {
+                return DataChunk.empty();
+            }
+            CompletableFuture<DataChunk<I>> future;
+            try {
+                future = ordered ? pending.poll() : completed.take();
+            } catch (InterruptedException e) {
+                ThreadUtil.interrupt();
+                return DataChunk.empty();
+            }
+            inFlight--;
+            DataChunk<I> chunk;
+            try {
+                chunk = future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            if (chunk.isNotEmpty()) {
+                return chunk;
+            }
+        }
+    }
+
+    /**
+     * 丢弃尚未输出的区间，自建的线程池在此关闭（线程池为守护线程，未销毁也不会阻止 jvm 退出）
+     */
+    @Override
+    public void destroy(TaskContext<I, ?> context) {
+        pending.forEach(f -> f.cancel(true));
+        pending.clear();
+        completed.clear();
+        inFlight = 0;
+        if (ownExecutor) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private void submit(TaskContext<I, ?> context) {
+        while (inFlight < concurrency) {
+            BORDER from = getCursor();
+            BORDER to = advance();
+            if (to == null) {
+                return;
+            }
+            CompletableFuture<DataChunk<I>> future = CompletableFuture.supplyAsync(() -> readRange(context, from, to), executor);
+            if (ordered) {
+                pending.offer(future);
+            } else {
+                future.whenComplete((chunk, e) -> completed.offer(future));
+            }
+            inFlight++;
+        }
+    }
+
+}
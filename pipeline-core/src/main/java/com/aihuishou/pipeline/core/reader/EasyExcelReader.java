@@ -1,5 +1,6 @@
 package com.aihuishou.pipeline.core.reader;
 
+import com.aihuishou.pipeline.core.context.ColumnarSchema;
 import com.aihuishou.pipeline.core.context.DataChunk;
 import com.aihuishou.pipeline.core.context.TaskContext;
 import com.aihuishou.pipeline.core.event.TaskWarnningEvent;
@@ -24,6 +25,8 @@ import java.util.stream.Collectors;
 
 /**
  * excel 读取
+ * 指定 {@link ColumnarSchema} 且读取缓冲区整段存放数据块（如 {@link com.aihuishou.pipeline.core.task.AbstractPipeTaskBuilder#chunkedBuffer()}）时
+ * 按列输出 {@link com.aihuishou.pipeline.core.context.ColumnarDataChunk}，其余缓冲区逐个元素写入，列式数据块会立即列转行，此时按行输出
  * @param <I> 读取类型
  */
 public class EasyExcelReader<I> extends OnceInitializedReader<I> {
@@ -34,6 +37,8 @@ public class EasyExcelReader<I> extends OnceInitializedReader<I> {
 
     private Set<Integer> sheetNos;
 
+    private ColumnarSchema<I> schema;
+
     private final AtomicInteger unreadSheetCount = new AtomicInteger(Integer.MAX_VALUE);
 
     private final BlockingQueue<I> buffer = new LinkedBlockingQueue<>(1 << 10);
@@ -51,6 +56,11 @@ public class EasyExcelReader<I> extends OnceInitializedReader<I> {
         }
     }
 
+    public EasyExcelReader(File file, Class<I> clazz, ColumnarSchema<I> schema, int... sheetNos) {
+        this(file, clazz, sheetNos);
+        this.schema = schema;
+    }
+
     @Override
     public DataChunk<I> read(TaskContext<I, ?> context) {
         try {
@@ -60,7 +70,7 @@ public class EasyExcelReader<I> extends OnceInitializedReader<I> {
                     List<I> list = new ArrayList<>(buffer.size() + 1);
                     list.add(head);
                     buffer.drainTo(list);
-                    return DataChunk.of(list);
+                    return schema == null || !context.getReadBuffer().isChunked() ? DataChunk.wrap(list) : schema.toColumns(list);
                 }
             }
         } catch (InterruptedException e) {
@@ -107,7 +117,7 @@ public class EasyExcelReader<I> extends OnceInitializedReader<I> {
             try {
                 retryer.call(() -> buffer.offer(data, 5, TimeUnit.SECONDS));
             } catch (ExecutionException | RetryException e) {
-                taskContext.getTask().getDispatcher().dispatch(new TaskWarnningEvent(taskContext.getTask(), TaskWarnningEvent.Cause.READER_TO_BUFFER_FAILED, e));
+                taskContext.getWarnningAggregator().warn(taskContext.getTask(), TaskWarnningEvent.Cause.READER_TO_BUFFER_FAILED, e);
             }
         }
 
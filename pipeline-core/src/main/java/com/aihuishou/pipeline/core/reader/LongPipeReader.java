@@ -0,0 +1,26 @@
+package com.aihuishou.pipeline.core.reader;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.LongDataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+
+/**
+ * long 数据读取
+ * 读取缓冲区使用 {@link com.aihuishou.pipeline.core.buffer.LongDataBuffer}，读取的数据不装箱
+ * @author ethan zhang
+ */
+@FunctionalInterface
+public interface LongPipeReader extends PipeReader<Long> {
+
+    /**
+     * 读取下一批数据，返回空数据块表示读取结束
+     */
+    LongDataChunk readLongs(TaskContext<Long, ?> context);
+
+    @Override
+    default DataChunk<Long> read(TaskContext<Long, ?> context) {
+        LongDataChunk chunk = readLongs(context);
+        return chunk == null ? DataChunk.empty() : chunk;
+    }
+
+}
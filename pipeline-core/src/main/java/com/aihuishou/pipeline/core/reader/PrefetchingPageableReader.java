@@ -0,0 +1,143 @@
+package com.aihuishou.pipeline.core.reader;
+
+import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 预取分页读取
+ * 最多同时读取 prefetch 个后续页，按页码顺序输出，每页只读取一次，遇到第一个空页即结束
+ * 预取窗口随读取缓冲区的占用率收缩，下游消费不及时不会继续预取
+ * 页码及总数的判断与 {@link PageableReader} 一致：从第 page + 1 页开始读取，已知总数时读到总数为止，可直接替换
+ * {@link #readNextPage} 会被多个线程并发调用，子类实现需保证线程安全
+ * @param <I> 读取类型
+ * @author ethan zhang
+ */
+public abstract class PrefetchingPageableReader<I> implements PipeReader<I> {
+
+    private final long pageSize;
+
+    private final long total;
+
+    /**
+     * 最大预取页数
+     */
+    @Getter
+    private final int prefetch;
+
+    private final Executor executor;
+
+    /**
+     * 是否由当前读取器创建线程池，若是则在销毁时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 按页码顺序排列的读取任务
+     */
+    private final Deque<CompletableFuture<DataChunk<I>>> pending = new ArrayDeque<>();
+
+    /**
+     * 最后一个已提交的页码
+     */
+    private long page;
+
+    /**
+     * 是否已读到最后一页
+     */
+    private boolean exhausted;
+
+    public PrefetchingPageableReader(long pageSize, int prefetch) {
+        this(1, pageSize, -1, prefetch);
+    }
+
+    public PrefetchingPageableReader(long page, long pageSize, int prefetch) {
+        this(page, pageSize, -1, prefetch);
+    }
+
+    public PrefetchingPageableReader(long page, long pageSize, long total, int prefetch) {
+        this(page, pageSize, total, prefetch, Executors.newFixedThreadPool(prefetch, DaemonThreadFactory.INSTANCE), true);
+    }
+
+    public PrefetchingPageableReader(long page, long pageSize, long total, int prefetch, Executor executor) {
+        this(page, pageSize, total, prefetch, executor, false);
+    }
+
+    private PrefetchingPageableReader(long page, long pageSize, long total, int prefetch, Executor executor, boolean ownExecutor) {
+        this.page = page;
+        this.pageSize = pageSize;
+        this.total = total;
+        this.prefetch = prefetch;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    @Override
+    public synchronized DataChunk<I> read(TaskContext<I, ?> context) {
+        if (!exhausted) {
+            submit(context);
+        }
+        CompletableFuture<DataChunk<I>> future = pending.poll();
+        if (future == null) {
+            exhausted = true;
+            return DataChunk.empty();
+        }
+        DataChunk<I> chunk;
+        try {
+            chunk = future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        if (chunk.isEmpty()) {
+            // 空页之后的预取结果全部丢弃
+            exhausted = true;
+            pending.forEach(f -> f.cancel(true));
+            pending.clear();
+        }
+        return chunk;
+    }
+
+    protected abstract DataChunk<I> readNextPage(TaskContext<I, ?> context, long page, long pageSize);
+
+    /**
+     * 丢弃尚未输出的预取页，自建的线程池在此关闭（线程池为守护线程，未销毁也不会阻止 jvm 退出）
+     */
+    @Override
+    public synchronized void destroy(TaskContext<I, ?> context) {
+        exhausted = true;
+        pending.forEach(f -> f.cancel(true));
+        pending.clear();
+        if (ownExecutor) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private void submit(TaskContext<I, ?> context) {
+        int window = window(context.getReadBuffer());
+        while (pending.size() < window && (total < 0 || (page - 1) * pageSize < total)) {
+            long nextPage = ++page;
+            pending.offer(CompletableFuture.supplyAsync(() -> readNextPage(context, nextPage, pageSize), executor));
+        }
+    }
+
+    /**
+     * 按读取缓冲区的空闲比例（按字节限制时取元素和字节中较满的一个）计算预取窗口，至少保留一页
+     */
+    private int window(DataBuffer<I> readBuffer) {
+        if (readBuffer.capacity() <= 0) {
+            return prefetch;
+        }
+        return (int) Math.max(1L, (long) (prefetch * (1D - readBuffer.fillRatio())));
+    }
+
+}
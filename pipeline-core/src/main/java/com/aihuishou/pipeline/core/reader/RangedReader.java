@@ -28,7 +28,7 @@ public abstract class RangedReader<I, BORDER extends Comparable<BORDER>, SPAN> i
     /**
      * 步长
      */
-    private SPAN span;
+    private volatile SPAN span;
 
     /**
      * 游标移动逻辑
@@ -59,13 +59,10 @@ public abstract class RangedReader<I, BORDER extends Comparable<BORDER>, SPAN> i
     public DataChunk<I> read(TaskContext<I, ?> context) {
         // 游标到达右边界，则跳出循环
         while (cursor.compareTo(right) < 0) {
-            BORDER nextCursor = incrementer.apply(cursor, span);
-            // 游标下一个位置超出右边界，则置为右边界
-            if (nextCursor.compareTo(right) > 0) {
-                nextCursor = right;
-            }
-            DataChunk<I> chunk = readRange(context, cursor, nextCursor);
-            cursor = nextCursor;
+            BORDER from = cursor;
+            BORDER to = advance();
+            DataChunk<I> chunk = readRange(context, from, to);
+            afterRange(from, to, chunk);
             if (chunk.isNotEmpty()) {
                 return chunk;
             }
@@ -73,6 +70,35 @@ public abstract class RangedReader<I, BORDER extends Comparable<BORDER>, SPAN> i
         return DataChunk.empty();
     }
 
+    /**
+     * 按步长移动游标，返回移动后的游标，即下一个待读取区间的右边界（不超过右边界）
+     * 游标已到达右边界时返回 null
+     */
+    protected BORDER advance() {
+        if (cursor.compareTo(right) >= 0) {
+            return null;
+        }
+        BORDER nextCursor = incrementer.apply(cursor, span);
+        // 游标下一个位置超出右边界，则置为右边界
+        if (nextCursor.compareTo(right) > 0) {
+            nextCursor = right;
+        }
+        cursor = nextCursor;
+        return nextCursor;
+    }
+
+    /**
+     * 调整步长，下一次移动游标时生效
+     */
+    protected void setSpan(SPAN span) {
+        this.span = span;
+    }
+
+    /**
+     * 每读取完一个区间后回调，子类可据此调整步长
+     */
+    protected void afterRange(BORDER left, BORDER right, DataChunk<I> chunk) {}
+
     protected abstract DataChunk<I> readRange(TaskContext<I, ?> context, BORDER left, BORDER right);
 
 }
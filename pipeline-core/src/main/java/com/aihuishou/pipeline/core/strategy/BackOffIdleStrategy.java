@@ -0,0 +1,66 @@
+package com.aihuishou.pipeline.core.strategy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 退避空闲策略，依次经历忙等、让出时间片、挂起三个阶段，挂起时间按指数增长直到上限
+ * @author ethan zhang
+ */
+public class BackOffIdleStrategy implements IdleStrategy {
+
+    private static final long DEFAULT_MAX_SPINS = 100L;
+
+    private static final long DEFAULT_MAX_YIELDS = 10L;
+
+    private static final long DEFAULT_MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long maxSpins;
+
+    private final long maxYields;
+
+    private final long minParkNanos;
+
+    private final long maxParkNanos;
+
+    private long spins;
+
+    private long yields;
+
+    private long parkNanos;
+
+    public BackOffIdleStrategy() {
+        this(DEFAULT_MAX_SPINS, DEFAULT_MAX_YIELDS, DEFAULT_MIN_PARK_NANOS, DEFAULT_MAX_PARK_NANOS);
+    }
+
+    public BackOffIdleStrategy(long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        reset();
+    }
+
+    @Override
+    public void idle() {
+        if (spins < maxSpins) {
+            spins++;
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+    }
+
+    @Override
+    public void reset() {
+        spins = 0L;
+        yields = 0L;
+        parkNanos = minParkNanos;
+    }
+
+}
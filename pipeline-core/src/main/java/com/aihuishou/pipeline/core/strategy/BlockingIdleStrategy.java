@@ -0,0 +1,31 @@
+package com.aihuishou.pipeline.core.strategy;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+
+/**
+ * 阻塞空闲策略，等待交由缓冲区的条件变量完成，超时后由调用方重新检查状态
+ * @author ethan zhang
+ */
+public class BlockingIdleStrategy implements IdleStrategy {
+
+    private final long blockNanos;
+
+    public BlockingIdleStrategy() {
+        this(GlobalConfig.BUFFER.getConsumeTimeout().toNanos());
+    }
+
+    public BlockingIdleStrategy(long blockNanos) {
+        this.blockNanos = blockNanos;
+    }
+
+    @Override
+    public void idle() {
+        // 已在缓冲区上阻塞等待过，立即返回
+    }
+
+    @Override
+    public long blockNanos() {
+        return blockNanos;
+    }
+
+}
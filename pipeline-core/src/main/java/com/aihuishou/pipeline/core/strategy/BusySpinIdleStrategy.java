@@ -0,0 +1,14 @@
+package com.aihuishou.pipeline.core.strategy;
+
+/**
+ * 忙等空闲策略
+ * @author ethan zhang
+ */
+public class BusySpinIdleStrategy implements IdleStrategy {
+
+    @Override
+    public void idle() {
+        // 立即返回，由调用方继续轮询
+    }
+
+}
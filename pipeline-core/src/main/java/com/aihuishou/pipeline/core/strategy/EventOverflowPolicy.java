@@ -0,0 +1,29 @@
+package com.aihuishou.pipeline.core.strategy;
+
+/**
+ * 事件分发队列已满时的溢出策略，只有可丢弃的事件（如警告事件）会被丢弃，生命周期事件总是保留
+ * @author ethan zhang
+ */
+public enum EventOverflowPolicy {
+
+    /**
+     * 阻塞发布线程直到队列有空闲位置
+     */
+    BLOCK,
+
+    /**
+     * 溢出队列已满时丢弃新事件
+     */
+    DROP_NEWEST,
+
+    /**
+     * 溢出队列已满时丢弃最早的可丢弃事件
+     */
+    DROP_OLDEST,
+
+    /**
+     * 溢出队列中已有同类事件时合并（丢弃新事件），溢出队列已满时丢弃新事件
+     */
+    COALESCE
+
+}
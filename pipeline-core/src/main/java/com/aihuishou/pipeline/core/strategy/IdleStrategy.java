@@ -0,0 +1,27 @@
+package com.aihuishou.pipeline.core.strategy;
+
+/**
+ * 空闲策略，决定执行器在没有数据可消费或缓冲区已满时如何等待
+ * 策略实例带有退避状态，每个工作线程持有独立的实例
+ * @author ethan zhang
+ */
+public interface IdleStrategy {
+
+    /**
+     * 本轮没有完成任何工作时调用
+     */
+    void idle();
+
+    /**
+     * 本轮完成了工作时调用，重置退避进度
+     */
+    default void reset() {}
+
+    /**
+     * 在缓冲区上阻塞等待的最长时间（纳秒），非阻塞策略返回 0
+     */
+    default long blockNanos() {
+        return 0L;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.aihuishou.pipeline.core.strategy;
+
+import java.util.function.Supplier;
+
+/**
+ * 空闲策略类型
+ * @author ethan zhang
+ */
+public enum IdleStrategyType {
+
+    /**
+     * 忙等，延迟最低，空闲时占满一个核
+     */
+    BUSY_SPIN(BusySpinIdleStrategy::new),
+
+    /**
+     * 让出 CPU 时间片
+     */
+    YIELD(YieldIdleStrategy::new),
+
+    /**
+     * 退避，先忙等，再让出时间片，最后以指数增长的时间挂起
+     */
+    BACK_OFF(BackOffIdleStrategy::new),
+
+    /**
+     * 阻塞在缓冲区上等待唤醒，空闲时不占用 CPU
+     */
+    BLOCKING(BlockingIdleStrategy::new);
+
+    private final Supplier<IdleStrategy> generator;
+
+    IdleStrategyType(Supplier<IdleStrategy> generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * 创建新的策略实例
+     */
+    public IdleStrategy newInstance() {
+        return generator.get();
+    }
+
+}
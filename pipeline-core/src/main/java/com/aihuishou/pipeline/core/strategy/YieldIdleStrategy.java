@@ -0,0 +1,14 @@
+package com.aihuishou.pipeline.core.strategy;
+
+/**
+ * 让出时间片的空闲策略
+ * @author ethan zhang
+ */
+public class YieldIdleStrategy implements IdleStrategy {
+
+    @Override
+    public void idle() {
+        Thread.yield();
+    }
+
+}
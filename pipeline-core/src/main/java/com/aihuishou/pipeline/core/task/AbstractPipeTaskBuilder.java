@@ -1,23 +1,37 @@
 package com.aihuishou.pipeline.core.task;
 
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
+import com.aihuishou.pipeline.core.buffer.ChunkedDataBuffer;
 import com.aihuishou.pipeline.core.buffer.DataBuffer;
+import com.aihuishou.pipeline.core.buffer.LongDataBuffer;
+import com.aihuishou.pipeline.core.buffer.WeighedDataBuffer;
+import com.aihuishou.pipeline.core.buffer.Weigher;
 import com.aihuishou.pipeline.core.config.GlobalConfig;
 import com.aihuishou.pipeline.core.context.TaskParameter;
 import com.aihuishou.pipeline.core.context.TaskStateHolder;
+import com.aihuishou.pipeline.core.exception.TaskBuildException;
+import com.aihuishou.pipeline.core.executor.CooperativeTaskExecutor;
+import com.aihuishou.pipeline.core.executor.TaskExecutor;
+import com.aihuishou.pipeline.core.executor.VirtualThreadTaskExecutor;
+import com.aihuishou.pipeline.core.processor.LongPipeProcessor;
 import com.aihuishou.pipeline.core.processor.PipeProcessor;
 import com.aihuishou.pipeline.core.processor.PipeProcessorChain;
 import com.aihuishou.pipeline.core.processor.PipeProcessorNode;
+import com.aihuishou.pipeline.core.reader.LongPipeReader;
 import com.aihuishou.pipeline.core.reader.PipeReader;
 import com.aihuishou.pipeline.core.reporter.CompositeTaskReporter;
 import com.aihuishou.pipeline.core.reporter.TaskReporter;
+import com.aihuishou.pipeline.core.strategy.IdleStrategyType;
 import com.aihuishou.pipeline.core.writer.PipeWriter;
 
 import java.time.Duration;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -52,10 +66,51 @@ public abstract class AbstractPipeTaskBuilder<I, O, C extends AbstractPipeTaskBu
     @SuppressWarnings("rawtypes")
     protected Function<Integer, DataBuffer> dataBufferGenerator;
 
+    /**
+     * 是否通过 {@link #useBuffer(Function)} 指定了缓冲区，指定后不再按元素类型选择 {@link LongDataBuffer}
+     */
+    protected boolean customBuffer;
+
+    /**
+     * 缓冲区元素的字节数估算，不为空时缓冲区按字节限制并计入全局内存预算
+     */
+    protected Weigher<Object> bufferWeigher = GlobalConfig.BUFFER.getWeigher();
+
+    /**
+     * 单个缓冲区的字节容量，不大于 0 时只受全局内存预算限制
+     */
+    protected long bufferMaxBytes = GlobalConfig.BUFFER.getMaxBytes();
+
     protected Supplier<TaskStateHolder> taskStateGenerator;
 
     protected Executor executor = Executors.newCachedThreadPool();
 
+    /**
+     * 任务执行器，未指定时在 executor 上为每个阶段分配独立的工作线程
+     */
+    protected Supplier<TaskExecutor<I, O>> taskExecutorGenerator;
+
+    /**
+     * 各阶段空闲策略，未指定时取注解或全局配置
+     */
+    protected IdleStrategyType readerIdleStrategy;
+
+    protected IdleStrategyType processorIdleStrategy;
+
+    protected IdleStrategyType writerIdleStrategy;
+
+    /**
+     * 攒批配置，未指定时取注解或全局配置
+     */
+    protected Consumer<TaskConfigAttributes> processorBatch;
+
+    protected Consumer<TaskConfigAttributes> writerBatch;
+
+    /**
+     * processor 最大并行度，未指定时取注解配置
+     */
+    protected Integer processorMaxParallelism;
+
     @SuppressWarnings("rawtypes")
     protected AbstractPipeTaskBuilder(Supplier<TaskParameter> parameterGenerator, Function<Integer, DataBuffer> dataBufferGenerator,
                                       Supplier<TaskStateHolder> taskStateGenerator) {
@@ -88,6 +143,26 @@ public abstract class AbstractPipeTaskBuilder<I, O, C extends AbstractPipeTaskBu
         return (C) this;
     }
 
+    @SuppressWarnings("unchecked")
+    public C taskExecutor(Supplier<TaskExecutor<I, O>> taskExecutorGenerator) {
+        this.taskExecutorGenerator = taskExecutorGenerator;
+        return (C) this;
+    }
+
+    /**
+     * 使用协作式任务执行器，各阶段在共享的固定线程池上轮流执行，线程数与任务数无关
+     */
+    public C cooperative() {
+        return taskExecutor(CooperativeTaskExecutor::new);
+    }
+
+    /**
+     * 使用虚拟线程任务执行器，每个阶段的工作线程均为虚拟线程（Java 21 以下退化为共享的缓存线程池）
+     */
+    public C virtualThreads() {
+        return taskExecutor(VirtualThreadTaskExecutor::new);
+    }
+
     @SuppressWarnings("unchecked")
     public C reader(PipeReader<I> reader) {
         this.reader = reader;
@@ -98,6 +173,7 @@ public abstract class AbstractPipeTaskBuilder<I, O, C extends AbstractPipeTaskBu
     public C processor(PipeProcessor<I, O> processor) {
         this.processorChain = new PipeProcessorChain<I, O>(PipeProcessorNode.<I, O>builder()
                 .processor(processor)
+                .attributes(TaskConfigAttributes.fromClass(processor.getClass()))
                 .state(taskStateGenerator.get())
                 .buffer(DataBuffer.EMPTY_BUFFER)
                 .build());
@@ -105,7 +181,11 @@ public abstract class AbstractPipeTaskBuilder<I, O, C extends AbstractPipeTaskBu
     }
 
     public <T, R> ProcessorChainBuilder<T, R> processorChain(PipeProcessor<T, R> processor) {
-        return new ProcessorChainBuilder<>(processor);
+        return new ProcessorChainBuilder<>(processor, TaskConfigAttributes.fromClass(processor.getClass()));
+    }
+
+    public <T, R> ProcessorChainBuilder<T, R> processorChain(PipeProcessor<T, R> processor, int parallelism) {
+        return new ProcessorChainBuilder<>(processor, withParallelism(TaskConfigAttributes.fromClass(processor.getClass()), parallelism));
     }
 
     @SuppressWarnings("unchecked")
@@ -162,58 +242,246 @@ public abstract class AbstractPipeTaskBuilder<I, O, C extends AbstractPipeTaskBu
         return (C) this;
     }
 
+    @SuppressWarnings("unchecked")
+    public C idleStrategy(IdleStrategyType idleStrategy) {
+        this.readerIdleStrategy = idleStrategy;
+        this.processorIdleStrategy = idleStrategy;
+        this.writerIdleStrategy = idleStrategy;
+        return (C) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public C readerIdleStrategy(IdleStrategyType readerIdleStrategy) {
+        this.readerIdleStrategy = readerIdleStrategy;
+        return (C) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public C processorIdleStrategy(IdleStrategyType processorIdleStrategy) {
+        this.processorIdleStrategy = processorIdleStrategy;
+        return (C) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public C writerIdleStrategy(IdleStrategyType writerIdleStrategy) {
+        this.writerIdleStrategy = writerIdleStrategy;
+        return (C) this;
+    }
+
+    /**
+     * processor 攒批：批次不足 minBatchSize 时最多等待 maxLinger，单批不超过 maxBatchSize
+     */
+    @SuppressWarnings("unchecked")
+    public C processorBatch(int minBatchSize, int maxBatchSize, Duration maxLinger) {
+        this.processorBatch = batch(minBatchSize, maxBatchSize, maxLinger);
+        return (C) this;
+    }
+
+    /**
+     * processor 自动伸缩：各节点工作线程数按缓冲区占用在节点并行度与 maxParallelism 之间变化
+     */
+    @SuppressWarnings("unchecked")
+    public C processorAutoScale(int maxParallelism) {
+        if (maxParallelism < 1) {
+            throw new TaskBuildException("The max parallelism must be positive!");
+        }
+        this.processorMaxParallelism = maxParallelism;
+        return (C) this;
+    }
+
+    /**
+     * writer 攒批：批次不足 minBatchSize 时最多等待 maxLinger，单批不超过 maxBatchSize
+     */
+    @SuppressWarnings("unchecked")
+    public C writerBatch(int minBatchSize, int maxBatchSize, Duration maxLinger) {
+        this.writerBatch = batch(minBatchSize, maxBatchSize, maxLinger);
+        return (C) this;
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     public C useBuffer(Function<Integer, DataBuffer> dataBufferGenerator) {
         this.dataBufferGenerator = dataBufferGenerator;
+        this.customBuffer = true;
+        return (C) this;
+    }
+
+    /**
+     * 使用按数据块存放的缓冲区，数据块整段进出缓冲区，不再逐个元素入队出队
+     */
+    public C chunkedBuffer() {
+        return useBuffer(ChunkedDataBuffer::new);
+    }
+
+    /**
+     * 缓冲区按估算的对象大小限制，单个缓冲区不超过 maxBytes 字节，并计入全局内存预算 {@link GlobalConfig.Buffer#getMemoryBudget()}
+     */
+    public C memoryBounded(long maxBytes) {
+        return memoryBounded(Weigher.estimated(), maxBytes);
+    }
+
+    /**
+     * 缓冲区按 weigher 计算的字节数限制，maxBytes 不大于 0 时只受全局内存预算限制
+     */
+    @SuppressWarnings("unchecked")
+    public C memoryBounded(Weigher<Object> weigher, long maxBytes) {
+        this.bufferWeigher = Objects.requireNonNull(weigher);
+        this.bufferMaxBytes = maxBytes;
         return (C) this;
     }
 
     public PipeTask<I, O> build() {
         PipeTask<I, O> task = new PipeTask<>();
         initialize(task);
+        // 合并各阶段配置，优先级：构建参数 > 注解 > 全局配置
+        task.setReaderAttributes(resolveAttributes(TaskConfigAttributes.fromClass(reader.getClass()), readerIdleStrategy, null));
+        processorChain.getNodes().forEach(node -> {
+            resolveAttributes(node.getAttributes(), processorIdleStrategy, processorBatch);
+            Optional.ofNullable(processorMaxParallelism).ifPresent(node.getAttributes()::setMaxParallelism);
+        });
+        task.setWriterAttributes(resolveAttributes(TaskConfigAttributes.fromClass(writer.getClass()), writerIdleStrategy, writerBatch));
         return task;
     }
 
+    /**
+     * 创建缓冲区，生产端为 {@link LongPipeReader} 或消费端为 {@link LongPipeProcessor} 时使用 {@link LongDataBuffer}
+     * 指定了 weigher 时其余缓冲区包装为 {@link WeighedDataBuffer}（{@link LongDataBuffer} 预先分配数组，大小固定，不再按字节限制）
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected DataBuffer newBuffer(int size, Object producer, Object consumer) {
+        if (!customBuffer && (producer instanceof LongPipeReader || consumer instanceof LongPipeProcessor)) {
+            return new LongDataBuffer(size);
+        }
+        DataBuffer buffer = dataBufferGenerator.apply(size);
+        return bufferWeigher == null ? buffer : new WeighedDataBuffer<>(buffer, bufferWeigher, bufferMaxBytes);
+    }
+
+    private TaskConfigAttributes withParallelism(TaskConfigAttributes attributes, int parallelism) {
+        if (parallelism < 1) {
+            throw new TaskBuildException("The parallelism must be positive!");
+        }
+        attributes.setParallelism(parallelism);
+        return attributes;
+    }
+
+    private Consumer<TaskConfigAttributes> batch(int minBatchSize, int maxBatchSize, Duration maxLinger) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize || maxLinger.isNegative()) {
+            throw new TaskBuildException("Illegal batch config, 0 < minBatchSize <= maxBatchSize and maxLinger >= 0 are required!");
+        }
+        return attributes -> {
+            attributes.setMinBatchSize(minBatchSize);
+            attributes.setMaxConsumeCount(maxBatchSize);
+            attributes.setMaxLinger(maxLinger);
+        };
+    }
+
+    private TaskConfigAttributes resolveAttributes(TaskConfigAttributes attributes, IdleStrategyType idleStrategy, Consumer<TaskConfigAttributes> batch) {
+        Optional.ofNullable(idleStrategy).ifPresent(attributes::setIdleStrategy);
+        Optional.ofNullable(batch).ifPresent(b -> b.accept(attributes));
+        return attributes;
+    }
+
     protected abstract void initialize(PipeTask<I, O> task);
 
     public class ProcessorChainBuilder<T, R> {
 
+        /**
+         * 节点构建者，缓冲区在整条链确定后再按融合情况分配
+         */
         @SuppressWarnings("rawtypes")
-        private final LinkedList<PipeProcessorNode> nodes;
+        private final LinkedList<PipeProcessorNode.Builder> nodes;
 
-        @SuppressWarnings("unchecked")
-        private ProcessorChainBuilder(PipeProcessor<T, R> processor) {
-            this.nodes = new LinkedList<>(Collections.singleton(PipeProcessorNode.<T, R>builder()
-                    .processor(processor)
-                    .state(taskStateGenerator.get())
-                    .buffer(dataBufferGenerator.apply(processBufferSize))
-                    .build()));
+        private ProcessorChainBuilder(PipeProcessor<T, R> processor, TaskConfigAttributes attributes) {
+            this.nodes = new LinkedList<>();
+            add(processor, attributes, false);
         }
 
         @SuppressWarnings("rawtypes")
-        private ProcessorChainBuilder(LinkedList<PipeProcessorNode> nodes) {
+        private ProcessorChainBuilder(LinkedList<PipeProcessorNode.Builder> nodes) {
             this.nodes = nodes;
         }
 
-        @SuppressWarnings("unchecked")
         public <V> ProcessorChainBuilder<T, V> then(PipeProcessor<? super R, ? extends V> processor) {
-            nodes.add(PipeProcessorNode.<R, V>builder()
-                    .processor(processor)
-                    .state(taskStateGenerator.get())
-                    .buffer(dataBufferGenerator.apply(processBufferSize))
-                    .build());
+            return then(processor, TaskConfigAttributes.fromClass(processor.getClass()), false);
+        }
+
+        /**
+         * 追加节点，并指定该节点的并行度
+         */
+        public <V> ProcessorChainBuilder<T, V> then(PipeProcessor<? super R, ? extends V> processor, int parallelism) {
+            return then(processor, withParallelism(TaskConfigAttributes.fromClass(processor.getClass()), parallelism), false);
+        }
+
+        /**
+         * 追加节点，并与上个节点融合，在同一线程中对同一批数据依次处理，两者之间不再经过缓冲区
+         */
+        public <V> ProcessorChainBuilder<T, V> thenFused(PipeProcessor<? super R, ? extends V> processor) {
+            return then(processor, TaskConfigAttributes.fromClass(processor.getClass()), true);
+        }
+
+        private <V> ProcessorChainBuilder<T, V> then(PipeProcessor<? super R, ? extends V> processor, TaskConfigAttributes attributes, boolean fused) {
+            add(processor, attributes, fused);
             return new ProcessorChainBuilder<>(nodes);
         }
 
-        @SuppressWarnings("unchecked")
         public C end(PipeProcessor<? super R, ? extends O> processor) {
-            nodes.add(PipeProcessorNode.<R, O>builder()
+            return end(processor, TaskConfigAttributes.fromClass(processor.getClass()), false);
+        }
+
+        /**
+         * 追加尾节点，并指定该节点的并行度
+         */
+        public C end(PipeProcessor<? super R, ? extends O> processor, int parallelism) {
+            return end(processor, withParallelism(TaskConfigAttributes.fromClass(processor.getClass()), parallelism), false);
+        }
+
+        /**
+         * 追加尾节点，并与上个节点融合
+         */
+        public C endFused(PipeProcessor<? super R, ? extends O> processor) {
+            return end(processor, TaskConfigAttributes.fromClass(processor.getClass()), true);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private C end(PipeProcessor<? super R, ? extends O> processor, TaskConfigAttributes attributes, boolean fused) {
+            add(processor, attributes, fused);
+            LinkedList<PipeProcessorNode> chain = new LinkedList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                PipeProcessorNode.Builder cur = nodes.get(i);
+                // 下个节点与当前节点融合或当前节点为尾节点时，当前节点无需写出缓冲区
+                boolean isTail = i == nodes.size() - 1;
+                boolean nextFused = !isTail && shouldFuse(nodes.get(i).build(), nodes.get(i + 1).build());
+                if (nextFused) {
+                    nodes.get(i + 1).fused(true);
+                }
+                chain.add(cur.buffer(isTail || nextFused ? DataBuffer.EMPTY_BUFFER
+                        : newBuffer(processBufferSize, null, nodes.get(i + 1).build().getProcessor())).build());
+            }
+            AbstractPipeTaskBuilder.this.processorChain = new PipeProcessorChain<I, O>(chain);
+            return (C) AbstractPipeTaskBuilder.this;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void add(PipeProcessor processor, TaskConfigAttributes attributes, boolean fused) {
+            nodes.add(PipeProcessorNode.builder()
                     .processor(processor)
+                    .attributes(attributes)
                     .state(taskStateGenerator.get())
-                    .buffer(DataBuffer.EMPTY_BUFFER)
-                    .build());
-            AbstractPipeTaskBuilder.this.processorChain = new PipeProcessorChain<I, O>(nodes);
-            return (C) AbstractPipeTaskBuilder.this;
+                    .fused(fused));
+        }
+
+        /**
+         * 显式声明融合，或相邻两个节点均为无状态且并行度（包括最大并行度）相同时自动融合
+         */
+        @SuppressWarnings("rawtypes")
+        private boolean shouldFuse(PipeProcessorNode pre, PipeProcessorNode next) {
+            if (next.isFused()) {
+                return true;
+            }
+            TaskConfigAttributes preAttributes = pre.getAttributes();
+            TaskConfigAttributes nextAttributes = next.getAttributes();
+            return preAttributes.isStateless() && nextAttributes.isStateless()
+                    && preAttributes.getParallelism() == nextAttributes.getParallelism()
+                    && preAttributes.getMaxParallelism() == nextAttributes.getMaxParallelism();
         }
 
     }
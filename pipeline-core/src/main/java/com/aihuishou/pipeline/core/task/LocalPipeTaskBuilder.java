@@ -39,15 +39,16 @@ public class LocalPipeTaskBuilder<I, O> extends AbstractPipeTaskBuilder<I, O, Lo
         task.setReporter(reporter);
         task.setDispatcher(DisruptorTaskEventDispatcher.INSTANCE);
         task.setManager(LocalTaskManager.INSTANCE);
-        task.setExecutor(new LocalTaskExecutor<>(executor));
+        task.setExecutor(taskExecutorGenerator == null ? new LocalTaskExecutor<>(executor) : taskExecutorGenerator.get());
         LocalTaskContext<I, O> context = new LocalTaskContext<>();
         context.setTask(task);
         context.setParameter(parameter);
-        context.setReadBuffer(dataBufferGenerator.apply(readBufferSize));
-        context.setWriteBuffer(dataBufferGenerator.apply(writeBufferSize));
+        context.setReadBuffer(newBuffer(readBufferSize, reader, processorChain.getNodes().get(0).getProcessor()));
+        context.setWriteBuffer(newBuffer(writeBufferSize, null, writer));
         context.setReaderCounter(new LocalCounter());
         context.setProcessorCounter(new LocalCounter());
         context.setWriterCounter(new LocalCounter());
+        context.setDroppedEventCounter(new LocalCounter());
         context.setReaderState(new LocalTaskStateHolder());
         context.setProcessorState(new LocalTaskStateHolder());
         context.setWriterState(new LocalTaskStateHolder());
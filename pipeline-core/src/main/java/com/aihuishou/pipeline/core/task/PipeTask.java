@@ -1,5 +1,6 @@
 package com.aihuishou.pipeline.core.task;
 
+import com.aihuishou.pipeline.core.annotation.TaskConfigAttributes;
 import com.aihuishou.pipeline.core.context.TaskContext;
 import com.aihuishou.pipeline.core.event.TaskLifecycleEvent;
 import com.aihuishou.pipeline.core.event.dispatcher.TaskEventDispatcher;
@@ -33,6 +34,16 @@ public class PipeTask<I, O> {
 
     private PipeWriter<O> writer;
 
+    /**
+     * reader 配置（构建时由注解、全局配置及构建参数合并得到）
+     */
+    private TaskConfigAttributes readerAttributes;
+
+    /**
+     * writer 配置（构建时由注解、全局配置及构建参数合并得到）
+     */
+    private TaskConfigAttributes writerAttributes;
+
     private TaskContext<I, O> context;
 
     private TaskExecutor<I, O> executor;
@@ -1,12 +1,15 @@
 package com.aihuishou.pipeline.core.task;
 
+import com.aihuishou.pipeline.core.common.Counter;
 import com.aihuishou.pipeline.core.common.Holder;
+import com.aihuishou.pipeline.core.metrics.TaskMetrics;
 import com.aihuishou.pipeline.core.context.TaskParameter;
 import com.aihuishou.pipeline.core.utils.DateTimeFormatters;
 
 import java.time.Instant;
 import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class PipeTaskAttributes {
@@ -30,6 +33,8 @@ public class PipeTaskAttributes {
         attributes.set(AttributeType.READER_STATE, task.getContext().getReaderState());
         attributes.set(AttributeType.PROCESSOR_STATE, task.getContext().getProcessorState());
         attributes.set(AttributeType.WRITER_STATE, task.getContext().getWriterState());
+        attributes.set(AttributeType.DROPPED_EVENT_COUNT, task.getContext().getDroppedEventCounter());
+        attributes.set(AttributeType.METRICS, task.getContext().getMetrics());
         attributes.set(AttributeType.EVENT_STREAM, task.getDispatcher().getTaskEventStream(task.getTaskId()));
         attributes.set(AttributeType.TOTAL, task.getContext().getTotal());
         attributes.set(AttributeType.START_TIME, task.getContext().getStartTime());
@@ -78,6 +83,10 @@ public class PipeTaskAttributes {
         builder.append(String.format("READER_STATE: [%s(%s)]%s", get(AttributeType.READER_STATE), get(AttributeType.READ_COUNT), separator));
         builder.append(String.format("PROCESSOR_STATE: [%s(%s)]%s", get(AttributeType.PROCESSOR_STATE), get(AttributeType.PROCESSED_COUNT), separator));
         builder.append(String.format("WRITER_STATE: [%s(%s)]%s", get(AttributeType.WRITER_STATE), get(AttributeType.WRITTEN_COUNT), separator));
+        Counter droppedEventCount = get(AttributeType.DROPPED_EVENT_COUNT);
+        if (droppedEventCount != null && droppedEventCount.get() > 0) {
+            builder.append(String.format("DROPPED_EVENT_COUNT: [%s]%s", droppedEventCount, separator));
+        }
         Holder<Instant> startTime = get(AttributeType.START_TIME);
         if (startTime.isPresent()) {
             builder.append(String.format("START_TIME: [%s]%s", DateTimeFormatters.PATTERN_0.formatInstant(startTime.get()), separator));
@@ -88,6 +97,18 @@ public class PipeTaskAttributes {
         }
         builder.append(String.format("COST: [%s]%s", get(AttributeType.COST), separator));
         builder.append(String.format("TIMEOUT: [%s]%s", get(AttributeType.TIMEOUT), separator));
+        TaskMetrics metrics = get(AttributeType.METRICS);
+        if (metrics != null) {
+            metrics.getStages().forEach(stage -> builder.append(String.format("METRICS: [%s]%s", stage, separator)));
+            Map<String, Long> readerGauges = metrics.getReaderGauges();
+            if (!readerGauges.isEmpty()) {
+                builder.append(String.format("READER_GAUGES: [%s]%s", readerGauges.entrySet().stream()
+                        .map(gauge -> gauge.getKey() + "=" + gauge.getValue()).collect(Collectors.joining(", ")), separator));
+            }
+            if (metrics.getBottleneck() != null) {
+                builder.append(String.format("BOTTLENECK: [%s]%s", metrics.getBottleneck(), separator));
+            }
+        }
         return builder.toString();
     }
 
@@ -108,6 +129,8 @@ public class PipeTaskAttributes {
         READER_STATE,
         PROCESSOR_STATE,
         WRITER_STATE,
+        DROPPED_EVENT_COUNT,
+        METRICS,
         EVENT_STREAM,
         TOTAL,
         START_TIME,
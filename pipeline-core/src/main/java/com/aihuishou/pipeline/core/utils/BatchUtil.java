@@ -76,6 +76,20 @@ public class BatchUtil {
         return mergeList(futures);
     }
 
+    /**
+     * 分割集合，每个分片在独立的虚拟线程上并行处理（Java 21 以下使用共享的缓存线程池），适合 I/O 密集的分片
+     */
+    public static <T> void partitionAndProcessVirtual(List<T> source, int chunkSize, Consumer<List<T>> consumer) {
+        partitionAndProcess(source, chunkSize, consumer, VirtualThreadUtil.executor());
+    }
+
+    /**
+     * 分割集合，每个分片在独立的虚拟线程上并行处理，聚合结果后返回
+     */
+    public static <T, R> List<R> partitionAndProcessVirtual(List<T> source, int chunkSize, Function<List<T>, List<R>> function) {
+        return partitionAndProcess(source, chunkSize, function, VirtualThreadUtil.executor());
+    }
+
     public static <T> CompletableFuture<List<T>> mergeList(Collection<CompletableFuture<List<T>>> source) {
         return merge(source, ArrayList::new, List::addAll, List::addAll);
     }
@@ -0,0 +1,150 @@
+package com.aihuishou.pipeline.core.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 对象大小估算（按 64 位 JVM、压缩指针粗略计算，结果偏大）
+ * 计算对象本身以及其字段直接引用的字符串、数组、装箱类型和集合元素个数，不继续深入其他对象
+ * @author ethan zhang
+ */
+public class ObjectSizeUtil {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    /**
+     * 无法读取内容的引用字段（如其他对象）按该值计算
+     */
+    private static final int UNKNOWN_REFERENCE = 16;
+
+    private static final ConcurrentMap<Class<?>, ClassLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private ObjectSizeUtil() {}
+
+    public static long estimate(Object object) {
+        if (object == null) {
+            return 0L;
+        }
+        Long leaf = leafSize(object);
+        if (leaf != null) {
+            return leaf;
+        }
+        ClassLayout layout = LAYOUTS.computeIfAbsent(object.getClass(), ClassLayout::new);
+        long size = layout.shallowSize;
+        for (Field field : layout.references) {
+            size += referenceSize(layout, field, object);
+        }
+        return size;
+    }
+
+    private static long referenceSize(ClassLayout layout, Field field, Object object) {
+        if (!layout.accessible) {
+            return UNKNOWN_REFERENCE;
+        }
+        try {
+            Object value = field.get(object);
+            if (value == null) {
+                return 0L;
+            }
+            Long leaf = leafSize(value);
+            return leaf == null ? LAYOUTS.computeIfAbsent(value.getClass(), ClassLayout::new).shallowSize : leaf;
+        } catch (IllegalAccessException e) {
+            return UNKNOWN_REFERENCE;
+        }
+    }
+
+    /**
+     * 字符串、数组、装箱类型及集合直接计算，其他对象返回 null
+     */
+    private static Long leafSize(Object object) {
+        if (object instanceof String) {
+            // String 对象 24 字节，内容按 utf16 计算
+            return 24L + align(ARRAY_HEADER + 2L * ((String) object).length());
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return 16L + (object instanceof Long || object instanceof Double ? 8L : 0L);
+        }
+        Class<?> clazz = object.getClass();
+        if (clazz.isArray()) {
+            int length = java.lang.reflect.Array.getLength(object);
+            Class<?> component = clazz.getComponentType();
+            return align(ARRAY_HEADER + (long) length * (component.isPrimitive() ? primitiveSize(component) : REFERENCE));
+        }
+        if (object instanceof Collection) {
+            return 40L + (long) ((Collection<?>) object).size() * (REFERENCE + UNKNOWN_REFERENCE);
+        }
+        if (object instanceof Map) {
+            return 48L + (long) ((Map<?, ?>) object).size() * (32 + 2 * UNKNOWN_REFERENCE);
+        }
+        return null;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * 类的实例字段布局
+     */
+    private static class ClassLayout {
+
+        private final long shallowSize;
+
+        private final List<Field> references = new ArrayList<>();
+
+        private final boolean accessible;
+
+        private ClassLayout(Class<?> clazz) {
+            long size = OBJECT_HEADER;
+            boolean accessible = true;
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        size += primitiveSize(field.getType());
+                    } else {
+                        size += REFERENCE;
+                        references.add(field);
+                    }
+                }
+            }
+            try {
+                for (Field field : references) {
+                    field.setAccessible(true);
+                }
+            } catch (RuntimeException e) {
+                // 无法访问的类（如 jdk 内部类）只计算自身大小
+                accessible = false;
+            }
+            this.shallowSize = align(size);
+            this.accessible = accessible;
+        }
+
+    }
+
+}
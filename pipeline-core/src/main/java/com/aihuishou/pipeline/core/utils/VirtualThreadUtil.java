@@ -0,0 +1,85 @@
+package com.aihuishou.pipeline.core.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程工具类
+ * Java 21 及以上通过反射创建虚拟线程（每个任务一个虚拟线程），低版本退化为守护线程组成的缓存线程池，编译仍以 Java 8 为目标
+ * @author ethan zhang
+ */
+@Slf4j
+public class VirtualThreadUtil {
+
+    private static final String THREAD_PREFIX = "pipeline-virtual-";
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    private static volatile ExecutorService executor;
+
+    private VirtualThreadUtil() {}
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * 共享的虚拟线程执行器，每个任务在独立的虚拟线程上执行，不支持虚拟线程时为共享的缓存线程池
+     */
+    public static ExecutorService executor() {
+        if (executor == null) {
+            synchronized (VirtualThreadUtil.class) {
+                if (executor == null) {
+                    executor = newThreadPerTaskExecutor();
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 新建每个任务一个虚拟线程的执行器，不支持虚拟线程时为缓存线程池
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (VIRTUAL_THREAD_FACTORY != null) {
+            try {
+                Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) method.invoke(null, VIRTUAL_THREAD_FACTORY);
+            } catch (Exception e) {
+                log.warn("Create virtual thread executor failed, fallback to cached thread pool!", e);
+            }
+        }
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, THREAD_PREFIX + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 通过 Thread.ofVirtual().name(prefix, 0).factory() 创建虚拟线程工厂，不支持时返回 null
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            // Java 19、20 中虚拟线程为预览特性，未开启时创建线程会抛出异常
+            factory.newThread(() -> {});
+            return factory;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+}
@@ -51,13 +51,14 @@ public class EasyExcelWriter<O> extends OnceInitializedWriter<O> {
     @Override
     public int write(TaskContext<?, O> context, DataChunk<O> output) {
         initialize(context);
+        // 列式数据块在此列转行
         switch (writeMode) {
             case NORMAL:
             case TEMPLATE:
-                writer.write(output.toList(), sheet);
+                writer.write(output.asList(), sheet);
                 break;
             case FILL:
-                writer.fill(output.toList(), sheet);
+                writer.fill(output.asList(), sheet);
                 break;
             default:
                 break;
@@ -14,6 +14,9 @@ public abstract class PartitionedConcurrentWriter<O> implements PipeWriter<O> {
 
     private final Executor executor;
 
+    /**
+     * 指定分片处理的执行器，I/O 密集时可使用 {@link com.aihuishou.pipeline.core.utils.VirtualThreadUtil#executor()}，每个分片一个虚拟线程
+     */
     public PartitionedConcurrentWriter(int size, Executor executor) {
         this.size = size;
         this.executor = executor;
@@ -22,7 +25,7 @@ public abstract class PartitionedConcurrentWriter<O> implements PipeWriter<O> {
     @Override
     public int write(TaskContext<?, O> context, DataChunk<O> output) {
         AtomicInteger counter = new AtomicInteger();
-        BatchUtil.partitionAndProcess(output.toList(), size, (List<O> list) -> counter.addAndGet(writeInternal(context, DataChunk.of(list))), executor);
+        BatchUtil.partitionAndProcess(output.asList(), size, (List<O> list) -> counter.addAndGet(writeInternal(context, DataChunk.wrap(list))), executor);
         return counter.get();
     }
 
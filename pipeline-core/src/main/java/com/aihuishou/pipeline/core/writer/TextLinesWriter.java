@@ -29,7 +29,7 @@ public class TextLinesWriter<O> extends OnceInitializedWriter<O> {
     @Override
     public int write(TaskContext<?, O> context, DataChunk<O> output) {
         try {
-            FileUtils.writeLines(file, output.map(stringMapper).toList(), true);
+            FileUtils.writeLines(file, output.map(stringMapper).asList(), true);
             return output.size();
         } catch (IOException e) {
             throw new TaskWriteException(e);
@@ -0,0 +1,127 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 内存预算测试
+ * @author ethan zhang
+ */
+public class MemoryBudgetTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    private final MemoryBudget budget = MemoryBudget.INSTANCE;
+
+    private long limit;
+
+    @Before
+    public void setUp() {
+        limit = GlobalConfig.BUFFER.getMemoryBudget();
+        GlobalConfig.BUFFER.setMemoryBudget(100L);
+        assertEquals(0L, budget.getUsed());
+    }
+
+    @After
+    public void tearDown() {
+        budget.release(budget.getUsed());
+        GlobalConfig.BUFFER.setMemoryBudget(limit);
+    }
+
+    /**
+     * 后到的小申请即使放得下也不能越过排在前面的大申请
+     */
+    @Test
+    public void testFifoFairness() throws InterruptedException {
+        assertTrue(budget.acquire(80L, 0L, () -> false));
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread large = acquireAsync(50L, "large", order);
+        awaitWaiting(large);
+        Thread small = acquireAsync(10L, "small", order);
+        awaitWaiting(small);
+        Thread.sleep(200L);
+        assertTrue("small request overtakes the queued large one", order.isEmpty());
+        // 归还后只够大申请，小申请继续排队
+        budget.release(30L);
+        large.join(TimeUnit.NANOSECONDS.toMillis(TIMEOUT));
+        assertEquals("large", String.join(",", order));
+        assertEquals(100L, budget.getUsed());
+        budget.release(50L);
+        small.join(TimeUnit.NANOSECONDS.toMillis(TIMEOUT));
+        assertEquals("large,small", String.join(",", order));
+        assertEquals(60L, budget.getUsed());
+    }
+
+    /**
+     * overdraft 为 true 时立即申请成功，允许超出预算
+     */
+    @Test
+    public void testOverdraft() {
+        assertTrue(budget.acquire(80L, 0L, () -> false));
+        assertFalse(budget.acquire(50L, 0L, () -> false));
+        assertTrue(budget.acquire(50L, 0L, () -> true));
+        assertEquals(130L, budget.getUsed());
+    }
+
+    /**
+     * 等待期间 overdraft 变为 true（目标缓冲区被清空，没有字节归还）时也能申请成功
+     */
+    @Test
+    public void testOverdraftWhileWaiting() throws InterruptedException {
+        assertTrue(budget.acquire(80L, 0L, () -> false));
+        AtomicBoolean empty = new AtomicBoolean();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            if (budget.acquire(50L, TIMEOUT, empty::get)) {
+                acquired.countDown();
+            }
+        });
+        thread.start();
+        assertFalse(acquired.await(200L, TimeUnit.MILLISECONDS));
+        empty.set(true);
+        assertTrue(acquired.await(1L, TimeUnit.SECONDS));
+        assertEquals(130L, budget.getUsed());
+    }
+
+    /**
+     * 超时的申请离开队列，不阻塞后到的申请
+     */
+    @Test
+    public void testTimeoutLeavesQueue() {
+        assertTrue(budget.acquire(80L, 0L, () -> false));
+        assertFalse(budget.acquire(50L, TimeUnit.MILLISECONDS.toNanos(50L), () -> false));
+        assertTrue(budget.acquire(20L, 0L, () -> false));
+        assertEquals(100L, budget.getUsed());
+    }
+
+    private Thread acquireAsync(long bytes, String name, List<String> order) {
+        Thread thread = new Thread(() -> {
+            if (budget.acquire(bytes, TIMEOUT, () -> false)) {
+                order.add(name);
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1L);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+    }
+
+}
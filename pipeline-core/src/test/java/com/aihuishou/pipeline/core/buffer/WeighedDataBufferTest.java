@@ -0,0 +1,130 @@
+package com.aihuishou.pipeline.core.buffer;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按字节限制的数据缓冲区测试
+ * 元素为可变的重量，生产后修改重量，验证消费时归还的是生产时记录的重量
+ * @author ethan zhang
+ */
+public class WeighedDataBufferTest {
+
+    private final MemoryBudget budget = MemoryBudget.INSTANCE;
+
+    private long limit;
+
+    @Before
+    public void setUp() {
+        limit = GlobalConfig.BUFFER.getMemoryBudget();
+        GlobalConfig.BUFFER.setMemoryBudget(1_000L);
+        assertEquals(0L, budget.getUsed());
+    }
+
+    @After
+    public void tearDown() {
+        budget.release(budget.getUsed());
+        GlobalConfig.BUFFER.setMemoryBudget(limit);
+    }
+
+    /**
+     * 按生产顺序归还生产时记录的重量，元素在缓冲区中变化不影响计数
+     */
+    @Test
+    public void testFifoWeightRelease() {
+        WeighedDataBuffer<Weight> buffer = newBuffer(16, 0L);
+        List<Weight> data = weights(10, 20, 30);
+        assertEquals(3, buffer.produceAll(data));
+        assertBytes(buffer, 60L);
+        data.forEach(weight -> weight.value = 1_000L);
+        assertEquals(1, buffer.consumeIfPossible(1).size());
+        assertBytes(buffer, 50L);
+        assertEquals(2, buffer.consumeIfPossible(2).size());
+        assertBytes(buffer, 0L);
+    }
+
+    /**
+     * 被装饰的缓冲区只接收部分数据时，未接收部分的重量出队并归还
+     */
+    @Test
+    public void testPartialProduce() {
+        WeighedDataBuffer<Weight> buffer = newBuffer(2, 0L);
+        assertEquals(2, buffer.tryProduceAll(weights(1, 2, 4), 0L, TimeUnit.NANOSECONDS));
+        assertBytes(buffer, 3L);
+        assertEquals(1, buffer.consumeIfPossible(1).size());
+        assertBytes(buffer, 2L);
+        assertEquals(1, buffer.tryProduceAll(weights(8), 0L, TimeUnit.NANOSECONDS));
+        assertBytes(buffer, 10L);
+        assertEquals(2, buffer.consumeIfPossible(2).size());
+        assertBytes(buffer, 0L);
+    }
+
+    /**
+     * 字节容量已满时拒绝生产，被装饰的缓冲区为空时即使超出字节容量和内存预算也能放入
+     */
+    @Test
+    public void testOverdraftWhenEmpty() {
+        GlobalConfig.BUFFER.setMemoryBudget(10L);
+        WeighedDataBuffer<Weight> other = newBuffer(16, 0L);
+        assertTrue(other.tryProduce(new Weight(10L)));
+        WeighedDataBuffer<Weight> buffer = newBuffer(16, 20L);
+        assertTrue(buffer.tryProduce(new Weight(50L)));
+        assertTrue(buffer.isFull());
+        assertFalse(buffer.tryProduce(new Weight(1L)));
+        assertEquals(50L, buffer.getBytes());
+        assertEquals(60L, budget.getUsed());
+        assertEquals(1, buffer.consumeIfPossible(1).size());
+        assertEquals(1, other.consumeIfPossible(1).size());
+        assertBytes(buffer, 0L);
+    }
+
+    /**
+     * 释放后丢弃剩余数据并归还全部字节，之后生产的数据直接丢弃
+     */
+    @Test
+    public void testRelease() {
+        WeighedDataBuffer<Weight> buffer = newBuffer(16, 0L);
+        assertEquals(3, buffer.produceAll(weights(5, 6, 7)));
+        buffer.consumeIfPossible(1);
+        buffer.release();
+        assertTrue(buffer.isEmpty());
+        assertBytes(buffer, 0L);
+        assertEquals(2, buffer.produceAll(weights(1, 2)));
+        assertTrue(buffer.isEmpty());
+        assertBytes(buffer, 0L);
+    }
+
+    private void assertBytes(WeighedDataBuffer<Weight> buffer, long bytes) {
+        assertEquals(bytes, buffer.getBytes());
+        assertEquals(bytes, budget.getUsed());
+    }
+
+    private static WeighedDataBuffer<Weight> newBuffer(int capacity, long maxBytes) {
+        return new WeighedDataBuffer<>(new BlockingQueueDataBuffer<>(capacity), weight -> weight.value, maxBytes);
+    }
+
+    private static List<Weight> weights(long... values) {
+        return Arrays.asList(Arrays.stream(values).mapToObj(Weight::new).toArray(Weight[]::new));
+    }
+
+    private static class Weight {
+
+        private long value;
+
+        private Weight(long value) {
+            this.value = value;
+        }
+
+    }
+
+}
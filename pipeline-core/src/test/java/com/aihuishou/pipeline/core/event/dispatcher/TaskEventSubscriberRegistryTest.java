@@ -0,0 +1,73 @@
+package com.aihuishou.pipeline.core.event.dispatcher;
+
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.event.TaskEvictedEvent;
+import com.aihuishou.pipeline.core.event.TaskFinishedEvent;
+import com.aihuishou.pipeline.core.event.subscriber.PipeTaskEventSubscriber;
+import com.aihuishou.pipeline.core.processor.PipeProcessor;
+import com.aihuishou.pipeline.core.task.LocalPipeTaskBuilder;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 订阅者路由表测试
+ * @author ethan zhang
+ */
+public class TaskEventSubscriberRegistryTest {
+
+    private final TaskEventSubscriberRegistry registry = new TaskEventSubscriberRegistry();
+
+    private PipeTask<Integer, Integer> task;
+
+    @Before
+    public void setUp() {
+        task = LocalPipeTaskBuilder.<Integer, Integer>newBuilder()
+                .reader(context -> DataChunk.empty())
+                .processorChain((PipeProcessor<Integer, Integer>) (context, input) -> input)
+                .end((context, input) -> input)
+                .writer((context, output) -> output.size())
+                .build();
+    }
+
+    /**
+     * 被淘汰的任务仍在运行，其订阅者保留到任务完成
+     */
+    @Test
+    public void testEvictedTaskKeepsSubscribers() {
+        AtomicInteger finished = new AtomicInteger();
+        registry.register(subscriber(finished));
+        registry.dispatch(new TaskEvictedEvent(task, RemovalCause.EXPIRED));
+        assertEquals(1, registry.taskCount());
+        registry.dispatch(new TaskFinishedEvent(task));
+        assertEquals(1, finished.get());
+        assertEquals(0, registry.taskCount());
+        assertEquals(0, registry.stats().size());
+    }
+
+    /**
+     * 任务进入终态后注册的订阅者直接丢弃
+     */
+    @Test
+    public void testRegisterAfterFinishedIsDropped() {
+        registry.dispatch(new TaskFinishedEvent(task));
+        registry.register(subscriber(new AtomicInteger()));
+        assertEquals(0, registry.taskCount());
+        assertEquals(0, registry.stats().size());
+    }
+
+    private PipeTaskEventSubscriber<TaskFinishedEvent> subscriber(AtomicInteger counter) {
+        return new PipeTaskEventSubscriber<TaskFinishedEvent>(task, TaskFinishedEvent.class) {
+            @Override
+            protected void subscribeInternal(TaskFinishedEvent event) {
+                counter.incrementAndGet();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.aihuishou.pipeline.core.executor;
+
+import com.aihuishou.pipeline.core.config.GlobalConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 协作式调度单元的唤醒测试
+ * 关闭等待超时，唤醒一旦丢失单元便不会再被调度
+ * @author ethan zhang
+ */
+public class CooperativeUnitTest {
+
+    private Duration maxWait;
+
+    @Before
+    public void setUp() {
+        maxWait = GlobalConfig.COOPERATIVE.getMaxWait();
+        GlobalConfig.COOPERATIVE.setMaxWait(Duration.ZERO);
+    }
+
+    @After
+    public void tearDown() {
+        GlobalConfig.COOPERATIVE.setMaxWait(maxWait);
+    }
+
+    /**
+     * 时间片执行期间被唤醒，时间片返回等待后应立即重新调度
+     */
+    @Test
+    public void testWakeDuringSlice() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        CooperativeUnit unit = new CooperativeUnit() {
+            @Override
+            protected Slice runSlice(int maxChunks) {
+                if (runs.incrementAndGet() > 1) {
+                    return Slice.DONE;
+                }
+                Thread waker = new Thread(this::wake);
+                waker.start();
+                try {
+                    waker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Slice.WAIT;
+            }
+
+            @Override
+            protected void onDone(Throwable throwable) {
+                done.countDown();
+            }
+        };
+        unit.submit();
+        assertTrue("wakeup during slice is lost", done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+    }
+
+    /**
+     * 生产者不断唤醒，与时间片结束时进入等待竞争，所有信号最终都应被处理
+     */
+    @Test
+    public void testWakeRacingEndOfSlice() throws InterruptedException {
+        int signals = 200_000;
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        CooperativeUnit unit = new CooperativeUnit() {
+            @Override
+            protected Slice runSlice(int maxChunks) {
+                return processed.addAndGet(pending.getAndSet(0)) >= signals ? Slice.DONE : Slice.WAIT;
+            }
+
+            @Override
+            protected void onDone(Throwable throwable) {
+                done.countDown();
+            }
+        };
+        unit.submit();
+        for (int i = 0; i < signals; i++) {
+            pending.incrementAndGet();
+            unit.wake();
+        }
+        assertTrue("wakeup racing end of slice is lost, processed " + processed.get(), done.await(10, TimeUnit.SECONDS));
+        assertEquals(signals, processed.get());
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.aihuishou.pipeline.core.manager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分层时间轮测试（tick 为 1ms，第 1 层槽跨度 64ms，第 2 层槽跨度 4096ms）
+ * @author ethan zhang
+ */
+public class HierarchicalTimerWheelTest {
+
+    private HierarchicalTimerWheel wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new HierarchicalTimerWheel(Duration.ofMillis(1), "timer-wheel-test");
+        wheel.start();
+    }
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    /**
+     * 放在第 1 层的定时器下放到第 0 层后按时执行
+     */
+    @Test
+    public void testCascadeOneLevel() throws InterruptedException {
+        assertFiresOnTime(Duration.ofMillis(300));
+    }
+
+    /**
+     * 放在第 2 层的定时器逐级下放两次后按时执行
+     */
+    @Test
+    public void testCascadeTwoLevels() throws InterruptedException {
+        assertFiresOnTime(Duration.ofMillis(4200));
+    }
+
+    /**
+     * 下放前取消的定时器不执行
+     */
+    @Test
+    public void testCancelBeforeCascade() throws InterruptedException {
+        AtomicBoolean fired = new AtomicBoolean();
+        HierarchicalTimerWheel.Timeout timeout = wheel.schedule(Duration.ofMillis(200), () -> fired.set(true));
+        Thread.sleep(50L);
+        assertTrue(timeout.cancel());
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(Duration.ofMillis(400), later::countDown);
+        assertTrue(later.await(2L, TimeUnit.SECONDS));
+        assertFalse("cancelled timeout fires", fired.get());
+    }
+
+    private void assertFiresOnTime(Duration delay) throws InterruptedException {
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+        long deadline = System.nanoTime() + delay.toNanos();
+        wheel.schedule(delay, () -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        });
+        assertTrue("timeout never fires", fired.await(delay.toMillis() + 2000L, TimeUnit.MILLISECONDS));
+        long lateMillis = TimeUnit.NANOSECONDS.toMillis(firedAt.get() - deadline);
+        assertTrue("timeout fires early by " + -lateMillis + "ms", firedAt.get() >= deadline);
+        assertTrue("timeout fires late by " + lateMillis + "ms", lateMillis < 500L);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.aihuishou.pipeline.core.manager;
+
+import com.aihuishou.pipeline.core.buffer.MemoryBudget;
+import com.aihuishou.pipeline.core.context.DataChunk;
+import com.aihuishou.pipeline.core.context.TaskContext;
+import com.aihuishou.pipeline.core.event.TaskEvictedEvent;
+import com.aihuishou.pipeline.core.event.TaskFinishedEvent;
+import com.aihuishou.pipeline.core.processor.PipeProcessor;
+import com.aihuishou.pipeline.core.reader.RangedReader;
+import com.aihuishou.pipeline.core.task.LocalPipeTaskBuilder;
+import com.aihuishou.pipeline.core.task.PipeTask;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地任务管理器测试
+ * @author ethan zhang
+ */
+public class LocalTaskManagerTest {
+
+    private static final int TOTAL = 20_000;
+
+    /**
+     * 运行中的任务被淘汰后继续运行，数据全部写出，完成后按字节限制的缓冲区归还全部内存预算
+     */
+    @Test
+    public void testEvictRunningTask() throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        PipeTask<Integer, Integer> task = LocalPipeTaskBuilder.<Integer, Integer>newBuilder()
+                .reader(new RangedReader<Integer, Integer, Integer>(0, TOTAL, 100, Integer::sum) {
+                    @Override
+                    protected DataChunk<Integer> readRange(TaskContext<Integer, ?> context, Integer left, Integer right) {
+                        List<Integer> list = new ArrayList<>(right - left);
+                        for (int i = left; i < right; i++) {
+                            list.add(i);
+                        }
+                        return DataChunk.wrap(list);
+                    }
+                })
+                .processorChain((PipeProcessor<Integer, Integer>) (context, input) -> input)
+                .end((context, input) -> input)
+                .writer((context, output) -> {
+                    try {
+                        Thread.sleep(1L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    written.addAndGet(output.size());
+                    return output.size();
+                })
+                .memoryBounded(10_000L)
+                .build();
+        CountDownLatch finished = new CountDownLatch(1);
+        task.addSubscriber(event -> finished.countDown(), TaskFinishedEvent.class);
+        task.start();
+        while (written.get() == 0L) {
+            Thread.sleep(1L);
+        }
+        task.getDispatcher().dispatch(new TaskEvictedEvent(task, RemovalCause.EXPIRED));
+        assertTrue("task finishes before eviction", written.get() < TOTAL);
+        assertTrue("evicted task never finishes", finished.await(30L, TimeUnit.SECONDS));
+        assertEquals(TOTAL, written.get());
+        assertEquals(0L, MemoryBudget.INSTANCE.getUsed());
+    }
+
+}
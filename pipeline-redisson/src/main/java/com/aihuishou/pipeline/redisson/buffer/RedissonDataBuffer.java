@@ -7,9 +7,11 @@ import org.redisson.api.RBoundedBlockingQueue;
 import org.redisson.api.RedissonClient;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 数据缓冲区（基于 redisson 有界阻塞式队列实现）
@@ -18,6 +20,8 @@ import java.util.UUID;
  */
 public class RedissonDataBuffer<T> implements DataBuffer<T> {
 
+    private static final long PRODUCE_WAIT_MILLIS = 10L;
+
     private final RBoundedBlockingQueue<T> queue;
 
     public RedissonDataBuffer(RedissonClient redissonClient, int capacity, String id) {
@@ -59,6 +63,31 @@ public class RedissonDataBuffer<T> implements DataBuffer<T> {
         return queue.offer(data);
     }
 
+    @Override
+    public int produceAll(Collection<? extends T> data) {
+        return tryProduceAll(data, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int tryProduceAll(Collection<? extends T> data, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<T> list = new ArrayList<>(data);
+        int produced = 0;
+        while (produced < list.size()) {
+            // 按剩余容量截取一批，通过一次 RPUSH 整批写入（容量信号量不足时整批失败）
+            int n = Math.min(list.size() - produced, queue.remainingCapacity());
+            if (n > 0 && queue.addAll(list.subList(produced, produced + n))) {
+                produced += n;
+                continue;
+            }
+            if (System.nanoTime() - deadline >= 0 || ThreadUtil.isCurThreadInterrupted()) {
+                break;
+            }
+            ThreadUtil.sleep(PRODUCE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return produced;
+    }
+
     @Override
     public T consume() {
         try {
@@ -81,4 +110,26 @@ public class RedissonDataBuffer<T> implements DataBuffer<T> {
         return list;
     }
 
+    @Override
+    public List<T> consume(int maxElements, long timeout, TimeUnit unit) {
+        // BLPOP 超时时间为 0 表示永久阻塞，且不足一秒按一秒计，非阻塞消费直接批量取出
+        if (timeout <= 0L) {
+            return consumeIfPossible(maxElements);
+        }
+        try {
+            // 阻塞式弹出（BLPOP）首个元素，再批量取出剩余元素
+            T head = queue.poll(timeout, unit);
+            if (head == null) {
+                return Collections.emptyList();
+            }
+            List<T> list = new ArrayList<>(maxElements);
+            list.add(head);
+            queue.drainTo(list, maxElements - 1);
+            return list;
+        } catch (InterruptedException e) {
+            ThreadUtil.interrupt();
+            return Collections.emptyList();
+        }
+    }
+
 }
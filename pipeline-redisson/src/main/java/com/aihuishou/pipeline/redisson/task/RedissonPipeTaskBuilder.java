@@ -39,6 +39,7 @@ public class RedissonPipeTaskBuilder<I, O> extends AbstractPipeTaskBuilder<I, O,
         context.setReaderCounter(new RedissonCounter(redissonClient, timeout,"reader-counter-" + task.getTaskId()));
         context.setProcessorCounter(new RedissonCounter(redissonClient, timeout, "processor-counter-" + task.getTaskId()));
         context.setWriterCounter(new RedissonCounter(redissonClient, timeout, "writer-counter-" + task.getTaskId()));
+        context.setDroppedEventCounter(new RedissonCounter(redissonClient, timeout, "dropped-event-counter-" + task.getTaskId()));
         context.setReaderState(new RedissonTaskStateHolder(redissonClient, timeout, "reader-state-" + task.getTaskId()));
         context.setProcessorState(new RedissonTaskStateHolder(redissonClient, timeout, "processor-state-" + task.getTaskId()));
         context.setWriterState(new RedissonTaskStateHolder(redissonClient, timeout, "writer-state-" + task.getTaskId()));